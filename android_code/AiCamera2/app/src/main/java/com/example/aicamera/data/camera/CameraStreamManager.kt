@@ -157,6 +157,20 @@ class CameraStreamManager(private val context: Context) {
         return file
     }
 
+    // 辅助工具：缩放到长边不超过 maxEdge 后压成 JPEG 字节，实时帧通道用，不落盘
+    fun encodeJpeg(bitmap: Bitmap, maxEdge: Int = 640, quality: Int = 70): ByteArray {
+        val longEdge = maxOf(bitmap.width, bitmap.height)
+        val scaled = if (longEdge > maxEdge) {
+            val scale = maxEdge.toFloat() / longEdge
+            Bitmap.createScaledBitmap(bitmap, (bitmap.width * scale).toInt(), (bitmap.height * scale).toInt(), true)
+        } else {
+            bitmap
+        }
+        val stream = ByteArrayOutputStream()
+        scaled.compress(Bitmap.CompressFormat.JPEG, quality, stream)
+        return stream.toByteArray()
+    }
+
     // 辅助工具：旋转图片
     private fun rotateBitmap(bitmap: Bitmap, degrees: Int): Bitmap {
         if (degrees == 0) return bitmap
@@ -5,4 +5,7 @@ package com.example.aicamera.data.network.core
  */
 object ApiConstants {
     const val POSE_BASE_URL = "http://1.95.125.238:9001/"
+
+    // 总后端（网关），/api/frame/analyze 的 SSE 流式版本走这里
+    const val GATEWAY_BASE_URL = "http://1.95.125.238:8080/"
 }
@@ -0,0 +1,143 @@
+package com.example.aicamera.data.network.pose;
+
+import android.util.Log;
+
+import com.example.aicamera.data.network.core.ApiConstants;
+import com.example.aicamera.data.network.pose.model.PoseResponse;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+
+/**
+ * 与总后端 /ws/frames 的长连接帧通道：一次握手，之后连续发帧，不再每帧建一次 multipart 请求。
+ * 帧格式（大端）：version(1) | seq(4) | intentLen(2) | metaLen(2) | intent | meta | JPEG
+ * 服务端同一通道同时只分析一帧、积压时只留最新的；客户端这边也只保留少量在途帧，发不出去就直接丢。
+ */
+public class PoseFrameChannel {
+
+    private static final String TAG = "PoseFrameChannel";
+    private static final int VERSION = 1;
+    // 在途（已发送、未收到结果）的帧数上限
+    private static final int MAX_IN_FLIGHT = 2;
+
+    // 回调在 OkHttp 线程上
+    public interface Listener {
+        void onOpen(String sessionId);
+        void onResult(long seq, PoseResponse response);
+        void onError(String errorMessage);
+        void onClosed();
+    }
+
+    private final OkHttpClient client;
+    private final Gson gson = new Gson();
+    private final String sessionId;
+    private final Listener listener;
+    private final AtomicInteger seq = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile long lastResultSeq;
+    private WebSocket webSocket;
+
+    public PoseFrameChannel(Listener listener) {
+        this.listener = listener;
+        this.sessionId = UUID.randomUUID().toString();
+        this.client = new OkHttpClient.Builder()
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(0, TimeUnit.SECONDS)
+                .pingInterval(20, TimeUnit.SECONDS)
+                .build();
+    }
+
+    public void open() {
+        String url = ApiConstants.GATEWAY_BASE_URL.replaceFirst("^http", "ws") + "ws/frames?sessionId=" + sessionId;
+        Request request = new Request.Builder().url(url).build();
+        webSocket = client.newWebSocket(request, new WebSocketListener() {
+            @Override
+            public void onMessage(WebSocket ws, String text) {
+                handleMessage(text);
+            }
+
+            @Override
+            public void onClosed(WebSocket ws, int code, String reason) {
+                listener.onClosed();
+            }
+
+            @Override
+            public void onFailure(WebSocket ws, Throwable t, Response response) {
+                listener.onError("Frame channel failed: " + t.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 发送一帧 JPEG。在途帧已满或 OkHttp 发送队列里还有没写出去的数据时直接丢弃本帧。
+     *
+     * @return 是否真正发出
+     */
+    public boolean sendFrame(byte[] jpeg, String userIntent, String metaJson) {
+        WebSocket ws = webSocket;
+        if (ws == null || inFlight.get() >= MAX_IN_FLIGHT || ws.queueSize() > 0) {
+            return false;
+        }
+        byte[] intent = userIntent == null ? new byte[0] : userIntent.getBytes(StandardCharsets.UTF_8);
+        byte[] meta = metaJson == null ? new byte[0] : metaJson.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(9 + intent.length + meta.length + jpeg.length);
+        frame.put((byte) VERSION)
+                .putInt(seq.incrementAndGet())
+                .putShort((short) intent.length)
+                .putShort((short) meta.length)
+                .put(intent)
+                .put(meta)
+                .put(jpeg);
+        frame.flip();
+        if (!ws.send(ByteString.of(frame))) {
+            return false;
+        }
+        inFlight.incrementAndGet();
+        return true;
+    }
+
+    public void close() {
+        WebSocket ws = webSocket;
+        webSocket = null;
+        if (ws != null) {
+            ws.close(1000, "bye");
+        }
+    }
+
+    private void handleMessage(String text) {
+        JsonObject message = gson.fromJson(text, JsonObject.class);
+        String type = message.has("type") ? message.get("type").getAsString() : "";
+        switch (type) {
+            case "hello":
+                listener.onOpen(message.get("sessionId").getAsString());
+                break;
+            case "result":
+                inFlight.updateAndGet(n -> Math.max(0, n - 1));
+                long resultSeq = message.get("seq").getAsLong();
+                if (resultSeq <= lastResultSeq) {
+                    return;
+                }
+                lastResultSeq = resultSeq;
+                listener.onResult(resultSeq, gson.fromJson(message.get("result"), PoseResponse.class));
+                break;
+            case "error":
+                inFlight.updateAndGet(n -> Math.max(0, n - 1));
+                listener.onError(message.get("message").getAsString());
+                break;
+            default:
+                Log.d(TAG, "Ignoring unknown message: " + type);
+        }
+    }
+}
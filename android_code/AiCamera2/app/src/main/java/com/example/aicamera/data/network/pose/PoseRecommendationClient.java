@@ -2,17 +2,28 @@ package com.example.aicamera.data.network.pose;
 
 
 import android.util.Log;
+import com.example.aicamera.data.network.core.ApiConstants;
 import com.example.aicamera.data.network.pose.model.PoseResponse;
+import com.example.aicamera.data.network.pose.model.PoseResponseCborDecoder;
+import com.example.aicamera.data.network.pose.model.PoseSuggestion;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.OkHttpClient;
+import okhttp3.Request;
 import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
 import okhttp3.logging.HttpLoggingInterceptor;
+import okhttp3.sse.EventSource;
+import okhttp3.sse.EventSourceListener;
+import okhttp3.sse.EventSources;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -22,8 +33,12 @@ import retrofit2.converter.gson.GsonConverterFactory;
 public class PoseRecommendationClient {
 
     private static final String BASE_URL = "http://1.95.125.238:9001/"; //
+    // 总后端在读 multipart 之前按这个头限流，值与表单里的 sessionId 相同
+    private static final String SESSION_HEADER = "X-Session-Id";
     private static PoseRecommendationClient instance;
     private final PoseApiService apiService;
+    private final OkHttpClient streamClient;
+    private final Gson gson = new Gson();
 
     // 1. 定义回调接口，供外部接收结果
     public interface PoseCallback {
@@ -31,6 +46,17 @@ public class PoseRecommendationClient {
         void onError(String errorMessage);
     }
 
+    // 流式回调：每个 SSE 事件到达就回调一次（在 OkHttp 线程上）
+    public interface PoseStreamCallback {
+        void onAck(String sessionId);
+        void onGuideText(String guideText);
+        void onVoiceAudioText(String voiceAudioText);
+        void onPoseSuggestion(PoseSuggestion suggestion);
+        void onPoseImageUrl(String poseImageUrl);
+        void onComplete();
+        void onError(String errorMessage);
+    }
+
     // 2. 私有构造函数，初始化 Retrofit
     private PoseRecommendationClient() {
         HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
@@ -50,6 +76,16 @@ public class PoseRecommendationClient {
                 .build();
 
         apiService = retrofit.create(PoseApiService.class);
+
+        // SSE 不能挂 BODY 级别日志：它会先把整个响应体读完，流式就失效了
+        HttpLoggingInterceptor headerLogging = new HttpLoggingInterceptor();
+        headerLogging.setLevel(HttpLoggingInterceptor.Level.HEADERS);
+        streamClient = new OkHttpClient.Builder()
+                .connectTimeout(120, TimeUnit.SECONDS)
+                .writeTimeout(120, TimeUnit.SECONDS)
+                .readTimeout(120, TimeUnit.SECONDS)
+                .addInterceptor(headerLogging)
+                .build();
     }
 
     // 3. 单例模式获取实例
@@ -115,5 +151,148 @@ public class PoseRecommendationClient {
             }
         });
     }
-}
 
+    /**
+     * 调用总后端 /api/frame/analyze，要求 CBOR 响应（Accept: application/cbor），
+     * 用手写的 PoseResponseCborDecoder 解析，省掉 JSON 文本和 Gson 反射的开销。
+     *
+     * @param sessionId 相机会话 id，整个会话复用同一个（总后端按它限流、记会话历史）
+     */
+    public void analyzePoseCompact(String sessionId, File imageFile, String userIntent, String metaJson, PoseCallback callback) {
+        if (imageFile == null || !imageFile.exists()) {
+            callback.onError("Image file does not exist");
+            return;
+        }
+
+        Request request = new Request.Builder()
+                .url(ApiConstants.GATEWAY_BASE_URL + "api/frame/analyze")
+                .header("Accept", "application/cbor")
+                .header(SESSION_HEADER, sessionId)
+                .post(frameBody(sessionId, imageFile, userIntent, metaJson))
+                .build();
+
+        streamClient.newCall(request).enqueue(new okhttp3.Callback() {
+            @Override
+            public void onResponse(okhttp3.Call call, okhttp3.Response response) {
+                try (ResponseBody body = response.body()) {
+                    if (!response.isSuccessful() || body == null) {
+                        callback.onError("Request failed with code: " + response.code() + ", message: " + response.message());
+                        return;
+                    }
+                    callback.onSuccess(PoseResponseCborDecoder.decode(body.bytes()));
+                } catch (IOException | IllegalArgumentException e) {
+                    callback.onError("Invalid response: " + e.getMessage());
+                }
+            }
+
+            @Override
+            public void onFailure(okhttp3.Call call, IOException e) {
+                callback.onError("Network error: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 流式调用总后端 /api/frame/analyze（SSE）：ack → guideText → voiceAudioText → 各条姿势 → poseImageUrl → done。
+     * 每个事件一到就回调。总后端拿到完整结果后才拆成各字段事件，它们几乎同时到达；提前到达的只有 ack。
+     *
+     * @param sessionId 相机会话 id，整个会话复用同一个（总后端按它限流、记会话历史）
+     * @return 可用于取消本次请求的 EventSource
+     */
+    public EventSource analyzePoseStream(String sessionId, File imageFile, String userIntent, String metaJson, PoseStreamCallback callback) {
+        if (imageFile == null || !imageFile.exists()) {
+            callback.onError("Image file does not exist");
+            return null;
+        }
+
+        Request request = new Request.Builder()
+                .url(ApiConstants.GATEWAY_BASE_URL + "api/frame/analyze")
+                .header("Accept", "text/event-stream")
+                .header(SESSION_HEADER, sessionId)
+                .post(frameBody(sessionId, imageFile, userIntent, metaJson))
+                .build();
+
+        return EventSources.createFactory(streamClient).newEventSource(request, new EventSourceListener() {
+            // done 之后服务端关闭连接，不再当作错误
+            private boolean finished;
+
+            @Override
+            public void onEvent(EventSource eventSource, String id, String type, String data) {
+                if (type == null) {
+                    return;
+                }
+                switch (type) {
+                    case "ack":
+                        callback.onAck(gson.fromJson(data, JsonObject.class).get("sessionId").getAsString());
+                        break;
+                    case "guideText":
+                        callback.onGuideText(data);
+                        break;
+                    case "voiceAudioText":
+                        callback.onVoiceAudioText(data);
+                        break;
+                    case "poseSuggestion":
+                        callback.onPoseSuggestion(gson.fromJson(data, PoseSuggestion.class));
+                        break;
+                    case "poseImageUrl":
+                        callback.onPoseImageUrl(data);
+                        break;
+                    case "superseded":
+                        finished = true;
+                        callback.onError("Superseded by a newer frame");
+                        break;
+                    case "overloaded":
+                        finished = true;
+                        callback.onError("Server overloaded, try again later");
+                        break;
+                    case "degraded":
+                        Log.d("PoseRecommendationClient", "Degraded result: " + data);
+                        break;
+                    case "done":
+                        finished = true;
+                        callback.onComplete();
+                        break;
+                    default:
+                        Log.d("PoseRecommendationClient", "Ignoring unknown event: " + type);
+                }
+            }
+
+            @Override
+            public void onClosed(EventSource eventSource) {
+                if (!finished) {
+                    finished = true;
+                    callback.onError("Stream closed before completion");
+                }
+            }
+
+            @Override
+            public void onFailure(EventSource eventSource, Throwable t, okhttp3.Response response) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                if (response != null && !response.isSuccessful()) {
+                    callback.onError("Request failed with code: " + response.code() + ", message: " + response.message());
+                } else {
+                    callback.onError("Network error: " + (t != null ? t.getMessage() : "unknown"));
+                }
+            }
+        });
+    }
+
+    // 总后端 /api/frame/analyze 的 multipart 请求体
+    private static RequestBody frameBody(String sessionId, File imageFile, String userIntent, String metaJson) {
+        MultipartBody.Builder body = new MultipartBody.Builder()
+                .setType(MultipartBody.FORM)
+                .addFormDataPart("sessionId", sessionId)
+                .addFormDataPart("image", imageFile.getName(),
+                        RequestBody.create(MediaType.parse("image/*"), imageFile));
+        if (userIntent != null && !userIntent.isEmpty()) {
+            body.addFormDataPart("userIntent", userIntent);
+        }
+        if (metaJson != null && !metaJson.isEmpty()) {
+            body.addFormDataPart("meta", metaJson);
+        }
+        return body.build();
+    }
+}
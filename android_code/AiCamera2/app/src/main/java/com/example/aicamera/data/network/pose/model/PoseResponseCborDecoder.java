@@ -0,0 +1,287 @@
+package com.example.aicamera.data.network.pose.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 手写的 PoseResponse CBOR 解码器（总后端 Accept: application/cbor 时的响应体）。
+ * 按字段名直接填充对象，不走 Gson 反射；不认识的字段整体跳过，服务端加字段不会解析失败。
+ * 支持定长 / 不定长的 map、array、text（Jackson 默认写不定长 map）。
+ */
+public final class PoseResponseCborDecoder {
+
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_BYTES = 2;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+    private static final int MAJOR_TAG = 6;
+    private static final int MAJOR_SIMPLE = 7;
+
+    private static final int BREAK = 0xFF;
+    private static final int NULL = 0xF6;
+    private static final int UNDEFINED = 0xF7;
+    private static final int INDEFINITE = -1;
+
+    private final byte[] data;
+    private int pos;
+
+    private PoseResponseCborDecoder(byte[] data) {
+        this.data = data;
+    }
+
+    public static PoseResponse decode(byte[] data) {
+        return new PoseResponseCborDecoder(data).readResponse();
+    }
+
+    private PoseResponse readResponse() {
+        PoseResponse response = new PoseResponse();
+        int size = readMapStart();
+        for (int i = 0; hasNext(size, i); i++) {
+            String key = readText();
+            switch (key) {
+                case "sessionId": response.sessionId = readText(); break;
+                case "poseImageUrl": response.poseImageUrl = readText(); break;
+                case "guideText": response.guideText = readText(); break;
+                case "voiceAudioText": response.voiceAudioText = readText(); break;
+                case "poseSuggestions": response.poseSuggestions = readSuggestions(); break;
+                default: skipValue();
+            }
+        }
+        return response;
+    }
+
+    private List<PoseSuggestion> readSuggestions() {
+        if (consumeNull()) {
+            return null;
+        }
+        int size = readContainerStart(MAJOR_ARRAY);
+        List<PoseSuggestion> suggestions = new ArrayList<>(size > 0 ? size : 4);
+        for (int i = 0; hasNext(size, i); i++) {
+            suggestions.add(readSuggestion());
+        }
+        return suggestions;
+    }
+
+    private PoseSuggestion readSuggestion() {
+        if (consumeNull()) {
+            return null;
+        }
+        PoseSuggestion suggestion = new PoseSuggestion();
+        int size = readMapStart();
+        for (int i = 0; hasNext(size, i); i++) {
+            String key = readText();
+            switch (key) {
+                case "id": suggestion.id = readText(); break;
+                case "name": suggestion.name = readText(); break;
+                case "priority": suggestion.priority = readInt(); break;
+                case "details": suggestion.details = readDetails(); break;
+                case "tips": suggestion.tips = readTextList(); break;
+                default: skipValue();
+            }
+        }
+        return suggestion;
+    }
+
+    private PoseDetails readDetails() {
+        if (consumeNull()) {
+            return null;
+        }
+        PoseDetails details = new PoseDetails();
+        int size = readMapStart();
+        for (int i = 0; hasNext(size, i); i++) {
+            String key = readText();
+            switch (key) {
+                case "head": details.head = readText(); break;
+                case "arms": details.arms = readText(); break;
+                case "hands": details.hands = readText(); break;
+                case "torso": details.torso = readText(); break;
+                case "hips": details.hips = readText(); break;
+                case "legs": details.legs = readText(); break;
+                case "feet": details.feet = readText(); break;
+                case "orientation": details.orientation = readText(); break;
+                default: skipValue();
+            }
+        }
+        return details;
+    }
+
+    private List<String> readTextList() {
+        if (consumeNull()) {
+            return null;
+        }
+        int size = readContainerStart(MAJOR_ARRAY);
+        List<String> values = new ArrayList<>(size > 0 ? size : 4);
+        for (int i = 0; hasNext(size, i); i++) {
+            values.add(readText());
+        }
+        return values;
+    }
+
+    private String readText() {
+        if (consumeNull()) {
+            return null;
+        }
+        int header = next();
+        expectMajor(header, MAJOR_TEXT);
+        long length = argument(header);
+        if (length != INDEFINITE) {
+            String text = new String(data, pos, checkedLength(length), StandardCharsets.UTF_8);
+            pos += (int) length;
+            return text;
+        }
+        // 不定长字符串：若干个定长分片，直到 break
+        StringBuilder text = new StringBuilder();
+        while (peek() != BREAK) {
+            text.append(readText());
+        }
+        pos++;
+        return text.toString();
+    }
+
+    private int readInt() {
+        if (consumeNull()) {
+            return 0;
+        }
+        int header = next();
+        long value = argument(header);
+        switch (header >>> 5) {
+            case MAJOR_UNSIGNED: return (int) value;
+            case MAJOR_NEGATIVE: return (int) (-1 - value);
+            default: throw new IllegalArgumentException("Expected integer at " + (pos - 1));
+        }
+    }
+
+    private int readMapStart() {
+        return readContainerStart(MAJOR_MAP);
+    }
+
+    private int readContainerStart(int major) {
+        int header = next();
+        expectMajor(header, major);
+        return (int) argument(header);
+    }
+
+    // 定长容器按计数结束；不定长容器遇到 break 结束（顺带吃掉 break）
+    private boolean hasNext(int size, int index) {
+        if (size != INDEFINITE) {
+            return index < size;
+        }
+        if (peek() == BREAK) {
+            pos++;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean consumeNull() {
+        int header = peek();
+        if (header == NULL || header == UNDEFINED) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipValue() {
+        int header = next();
+        int major = header >>> 5;
+        long argument = argument(header);
+        switch (major) {
+            case MAJOR_UNSIGNED:
+            case MAJOR_NEGATIVE:
+            case MAJOR_SIMPLE:
+                return;
+            case MAJOR_BYTES:
+            case MAJOR_TEXT:
+                if (argument == INDEFINITE) {
+                    while (peek() != BREAK) {
+                        skipValue();
+                    }
+                    pos++;
+                } else {
+                    pos += checkedLength(argument);
+                }
+                return;
+            case MAJOR_ARRAY:
+            case MAJOR_MAP:
+                int items = major == MAJOR_MAP ? 2 : 1;
+                if (argument == INDEFINITE) {
+                    while (peek() != BREAK) {
+                        skipValue();
+                    }
+                    pos++;
+                } else {
+                    for (long i = 0; i < argument * items; i++) {
+                        skipValue();
+                    }
+                }
+                return;
+            case MAJOR_TAG:
+                skipValue();
+                return;
+            default:
+                throw new IllegalArgumentException("Unknown CBOR major type " + major);
+        }
+    }
+
+    /*
+    头字节低 5 位：<24 直接是值；24~27 后跟 1/2/4/8 字节大端值；31 表示不定长。
+    major 7 时 25~27 是半/单/双精度浮点，这里只需要跳过对应字节。
+     */
+    private long argument(int header) {
+        int info = header & 0x1F;
+        if (info < 24) {
+            return info;
+        }
+        switch (info) {
+            case 24: return readUnsigned(1);
+            case 25: return readUnsigned(2);
+            case 26: return readUnsigned(4);
+            case 27: return readUnsigned(8);
+            case 31: return INDEFINITE;
+            default: throw new IllegalArgumentException("Reserved CBOR additional info " + info);
+        }
+    }
+
+    private long readUnsigned(int bytes) {
+        if (pos + bytes > data.length) {
+            throw new IllegalArgumentException("Truncated CBOR at " + pos);
+        }
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value = (value << 8) | (data[pos++] & 0xFF);
+        }
+        return value;
+    }
+
+    private int checkedLength(long length) {
+        if (length < 0 || pos + length > data.length) {
+            throw new IllegalArgumentException("Truncated CBOR at " + pos);
+        }
+        return (int) length;
+    }
+
+    private void expectMajor(int header, int major) {
+        if (header >>> 5 != major) {
+            throw new IllegalArgumentException("Expected CBOR major type " + major + " at " + (pos - 1)
+                    + " but was " + (header >>> 5));
+        }
+    }
+
+    private int next() {
+        if (pos >= data.length) {
+            throw new IllegalArgumentException("Truncated CBOR at " + pos);
+        }
+        return data[pos++] & 0xFF;
+    }
+
+    private int peek() {
+        if (pos >= data.length) {
+            throw new IllegalArgumentException("Truncated CBOR at " + pos);
+        }
+        return data[pos] & 0xFF;
+    }
+}
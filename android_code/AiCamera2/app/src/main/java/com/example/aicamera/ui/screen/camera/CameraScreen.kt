@@ -158,6 +158,8 @@ fun CameraScreen(
             showConfirmButton = state.selectedMode == CameraMode.AiPose,
             onConfirm = { viewModel.requestPoseGuidance(lifecycleOwnerRef) },
             onClear = { viewModel.clearPoseGuidanceText() },
+            isLiveStreaming = state.poseLiveStreaming,
+            onToggleLive = { viewModel.togglePoseLiveGuidance(lifecycleOwnerRef) },
             modifier = Modifier.align(Alignment.CenterStart)
         )
 
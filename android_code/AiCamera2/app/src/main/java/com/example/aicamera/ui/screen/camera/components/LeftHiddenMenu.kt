@@ -46,6 +46,8 @@ fun LeftHiddenMenu(
     showConfirmButton: Boolean,
     onConfirm: () -> Unit,
     onClear: () -> Unit,
+    isLiveStreaming: Boolean,
+    onToggleLive: () -> Unit,
     modifier: Modifier = Modifier
 ) {
     val context = LocalContext.current
@@ -107,7 +109,8 @@ fun LeftHiddenMenu(
                         }
 
                         when {
-                            isLoading -> {
+                            // 流式结果：已经收到部分内容时直接显示，不再停留在“加载中”
+                            isLoading && poseSuggestionText.isBlank() && poseImageUrl.isBlank() -> {
                                 Text(
                                     text = stringResource(id = R.string.pose_guide_loading),
                                     color = Color.White,
@@ -174,6 +177,26 @@ fun LeftHiddenMenu(
                                     fontSize = 12.sp
                                 )
                             }
+
+                            Box(
+                                modifier = Modifier
+                                    .fillMaxWidth()
+                                    .background(
+                                        color = if (isLiveStreaming) Color(0xFFE57373) else Color(0xFF64B5F6),
+                                        shape = RoundedCornerShape(8.dp)
+                                    )
+                                    .clickable { onToggleLive() }
+                                    .padding(vertical = 8.dp),
+                                contentAlignment = Alignment.Center
+                            ) {
+                                Text(
+                                    text = stringResource(
+                                        id = if (isLiveStreaming) R.string.pose_live_stop else R.string.pose_live_start
+                                    ),
+                                    color = Color.White,
+                                    fontSize = 12.sp
+                                )
+                            }
                         }
                     }
                 }
@@ -27,6 +27,8 @@ data class CameraUiState(
     val poseImageUrl: String = "",
     val poseLoading: Boolean = false,
     val poseErrorMessage: String? = null,
+    // 实时指导：通过 WebSocket 帧通道连续发帧
+    val poseLiveStreaming: Boolean = false,
 
     // --- 镜头与变焦 ---
     val currentLensFacing: Int = androidx.camera.core.CameraSelector.LENS_FACING_BACK,
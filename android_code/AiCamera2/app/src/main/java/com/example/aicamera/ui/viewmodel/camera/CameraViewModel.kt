@@ -13,8 +13,10 @@ import androidx.lifecycle.application
 import androidx.lifecycle.viewModelScope
 import com.example.aicamera.data.camera.CameraController
 import com.example.aicamera.data.camera.CameraStreamManager
+import com.example.aicamera.data.network.pose.PoseFrameChannel
 import com.example.aicamera.data.network.pose.PoseRecommendationClient
 import com.example.aicamera.data.network.pose.model.PoseResponse
+import com.example.aicamera.data.network.pose.model.PoseSuggestion
 import com.example.aicamera.data.storage.FileManager
 import com.example.aicamera.data.speech.stt.SparkAsrManager
 import com.example.aicamera.data.speech.tts.TTSManager
@@ -24,6 +26,9 @@ import com.example.aicamera.ui.uistate.camera.CameraUiEvent
 import com.example.aicamera.ui.uistate.camera.CameraUiState
 import com.example.aicamera.ui.uistate.camera.ZoomUi
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.isActive
 import kotlinx.coroutines.flow.MutableSharedFlow
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.SharedFlow
@@ -31,7 +36,9 @@ import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
 import kotlinx.coroutines.flow.update
 import kotlinx.coroutines.launch
+import java.io.File
 import java.util.Locale
+import java.util.UUID
 
 /**
  * 相机页面 ViewModel
@@ -41,6 +48,10 @@ class CameraViewModel(application: Application) : AndroidViewModel(application)
 
     companion object {
         private const val TAG = "CameraViewModel"
+        // 实时指导的取帧间隔，约 3 fps；服务端和通道都会丢掉处理不过来的帧
+        private const val LIVE_FRAME_INTERVAL_MS = 333L
+        // 单帧指导改走 CBOR 响应：一次拿到完整结果（不流式），省掉 JSON 文本和 Gson 反射；默认走 SSE 流式
+        private const val POSE_COMPACT_RESPONSE = false
     }
 
     // 依赖注入
@@ -61,8 +72,12 @@ class CameraViewModel(application: Application) : AndroidViewModel(application)
 
     // AI姿势指导相关状态
     private val poseClient = PoseRecommendationClient.getInstance()
+    // 本次相机会话的 id：单帧指导的每次请求都带同一个，总后端才能按会话限流、记住上一帧
+    private val poseSessionId = UUID.randomUUID().toString()
     private val cameraStreamManager = CameraStreamManager(application)
     private var isStreamCameraStarted = false
+    private var poseFrameChannel: PoseFrameChannel? = null
+    private var poseLiveJob: Job? = null
 
     private var lastLifecycleOwner: androidx.lifecycle.LifecycleOwner? = null
     private var isTtsInitialized = false
@@ -439,24 +454,53 @@ class CameraViewModel(application: Application) : AndroidViewModel(application)
                 val bitmap = cameraStreamManager.captureSingleFrame()
                 val imageFile = cameraStreamManager.saveBitmapToJpg(bitmap)
 
-                poseClient.analyzePose(imageFile, resolvedIntent, metaJson, object : PoseRecommendationClient.PoseCallback {
-                    override fun onSuccess(response: PoseResponse) {
+                if (POSE_COMPACT_RESPONSE) {
+                    requestPoseGuidanceCompact(imageFile, resolvedIntent, metaJson)
+                    return@launch
+                }
+
+                // SSE：按事件渲染，voiceAudioText 一到就开始播报（总后端拿到完整结果后才推送各字段，ack 之外不会更早）
+                val suggestions = mutableListOf<PoseSuggestion>()
+                var voiceStarted = false
+                poseClient.analyzePoseStream(poseSessionId, imageFile, resolvedIntent, metaJson, object : PoseRecommendationClient.PoseStreamCallback {
+                    override fun onAck(sessionId: String) {
+                        Log.d(TAG, "AI姿势指导已受理: $sessionId")
+                    }
+
+                    override fun onGuideText(guideText: String) {
                         viewModelScope.launch {
-                            _uiState.update { currentState ->
-                                currentState.copy(
-                                    poseLoading = false,
-                                    poseGuideText = response.guideText ?: "",
-                                    poseImageUrl = response.poseImageUrl ?: "",
-                                    poseSuggestionText = formatPoseSuggestions(response)
-                                )
-                            }
+                            _uiState.update { it.copy(poseGuideText = guideText) }
+                        }
+                    }
 
-                            if (_uiState.value.voiceGuideEnabled && !_uiState.value.poseGuideText.isNullOrBlank()) {
-                                playVoiceAdvice(_uiState.value.poseGuideText)
+                    override fun onVoiceAudioText(voiceAudioText: String) {
+                        viewModelScope.launch {
+                            if (!voiceStarted && _uiState.value.voiceGuideEnabled) {
+                                voiceStarted = true
+                                playVoiceAdvice(voiceAudioText)
                             }
                         }
                     }
 
+                    override fun onPoseSuggestion(suggestion: PoseSuggestion) {
+                        viewModelScope.launch {
+                            suggestions.add(suggestion)
+                            _uiState.update { it.copy(poseSuggestionText = formatPoseSuggestions(suggestions)) }
+                        }
+                    }
+
+                    override fun onPoseImageUrl(poseImageUrl: String) {
+                        viewModelScope.launch {
+                            _uiState.update { it.copy(poseImageUrl = poseImageUrl) }
+                        }
+                    }
+
+                    override fun onComplete() {
+                        viewModelScope.launch {
+                            _uiState.update { it.copy(poseLoading = false) }
+                        }
+                    }
+
                     override fun onError(errorMessage: String) {
                         viewModelScope.launch {
                             _uiState.update { currentState ->
@@ -482,14 +526,117 @@ class CameraViewModel(application: Application) : AndroidViewModel(application)
         }
     }
 
+    // CBOR 单次响应：结果完整到达后一次性渲染，再开始播报
+    private fun requestPoseGuidanceCompact(imageFile: File, userIntent: String?, metaJson: String?) {
+        poseClient.analyzePoseCompact(poseSessionId, imageFile, userIntent, metaJson, object : PoseRecommendationClient.PoseCallback {
+            override fun onSuccess(response: PoseResponse) {
+                viewModelScope.launch {
+                    showPoseResponse(response)
+                    val voiceAudioText = response.voiceAudioText
+                    if (!voiceAudioText.isNullOrBlank() && _uiState.value.voiceGuideEnabled) {
+                        playVoiceAdvice(voiceAudioText)
+                    }
+                }
+            }
+
+            override fun onError(errorMessage: String) {
+                viewModelScope.launch {
+                    _uiState.update { currentState ->
+                        currentState.copy(
+                            poseLoading = false,
+                            poseErrorMessage = errorMessage
+                        )
+                    }
+                }
+            }
+        })
+    }
+
+    private fun showPoseResponse(response: PoseResponse) {
+        _uiState.update { currentState ->
+            currentState.copy(
+                poseLoading = false,
+                poseErrorMessage = null,
+                poseGuideText = response.guideText ?: "",
+                poseSuggestionText = formatPoseSuggestions(response.poseSuggestions ?: emptyList()),
+                poseImageUrl = response.poseImageUrl ?: ""
+            )
+        }
+    }
+
+    /**
+     * 开关实时姿势指导：打开后建立一条 WebSocket 帧通道，按固定间隔取帧发送，结果到一条刷新一条。
+     */
+    fun togglePoseLiveGuidance(lifecycleOwner: androidx.lifecycle.LifecycleOwner) {
+        if (_uiState.value.poseLiveStreaming) {
+            stopPoseLiveGuidance()
+        } else {
+            startPoseLiveGuidance(lifecycleOwner)
+        }
+    }
+
+    private fun startPoseLiveGuidance(lifecycleOwner: androidx.lifecycle.LifecycleOwner) {
+        ensureStreamCameraStarted(lifecycleOwner)
+        lateinit var channel: PoseFrameChannel
+        channel = PoseFrameChannel(object : PoseFrameChannel.Listener {
+            override fun onOpen(sessionId: String) {
+                Log.d(TAG, "实时指导通道已建立: $sessionId")
+            }
+
+            override fun onResult(seq: Long, response: PoseResponse) {
+                viewModelScope.launch {
+                    showPoseResponse(response)
+                }
+            }
+
+            override fun onError(errorMessage: String) {
+                viewModelScope.launch {
+                    _uiState.update { it.copy(poseErrorMessage = errorMessage) }
+                }
+            }
+
+            override fun onClosed() {
+                // 只处理当前这条通道的关闭，避免旧通道的关闭回调把刚重开的实时指导停掉
+                viewModelScope.launch {
+                    if (poseFrameChannel === channel) stopPoseLiveGuidance()
+                }
+            }
+        })
+        channel.open()
+        poseFrameChannel = channel
+        _uiState.update { it.copy(poseLiveStreaming = true, poseErrorMessage = null) }
+
+        poseLiveJob = viewModelScope.launch(Dispatchers.IO) {
+            while (isActive) {
+                try {
+                    val bitmap = cameraStreamManager.captureSingleFrame()
+                    val intent = _lastUserIntent.value.takeIf { _uiState.value.voiceGuideEnabled && it.isNotBlank() }
+                    if (!channel.sendFrame(cameraStreamManager.encodeJpeg(bitmap), intent, null)) {
+                        Log.d(TAG, "实时指导通道繁忙，丢弃本帧")
+                    }
+                } catch (e: Exception) {
+                    Log.e(TAG, "实时指导取帧失败", e)
+                }
+                delay(LIVE_FRAME_INTERVAL_MS)
+            }
+        }
+    }
+
+    private fun stopPoseLiveGuidance() {
+        poseLiveJob?.cancel()
+        poseLiveJob = null
+        poseFrameChannel?.close()
+        poseFrameChannel = null
+        _uiState.update { it.copy(poseLiveStreaming = false) }
+    }
+
     private fun ensureStreamCameraStarted(lifecycleOwner: androidx.lifecycle.LifecycleOwner) {
         if (isStreamCameraStarted) return
         cameraStreamManager.startCamera(lifecycleOwner)
         isStreamCameraStarted = true
     }
 
-    private fun formatPoseSuggestions(response: PoseResponse): String {
-        val suggestions = response.poseSuggestions ?: emptyList()
+    private fun formatPoseSuggestions(suggestions: List<PoseSuggestion>): String {
         if (suggestions.isEmpty()) return ""
 
         val lines = mutableListOf<String>()
@@ -690,6 +837,7 @@ class CameraViewModel(application: Application) : AndroidViewModel(application)
 
     override fun onCleared() {
         super.onCleared()
+        stopPoseLiveGuidance()
         cameraController.releaseCamera()
         cameraStreamManager.stopCamera()
         TTSManager.getInstance().destroy()
@@ -736,6 +884,9 @@ class CameraViewModel(application: Application) : AndroidViewModel(application)
      * 注意：这里用的是 uistate/camera/CameraMode(enum)，不受文案(strings)变化影响。
      */
     fun setSelectedMode(mode: CameraMode) {
+        if (mode != CameraMode.AiPose && _uiState.value.poseLiveStreaming) {
+            stopPoseLiveGuidance()
+        }
         _uiState.update { it.copy(selectedMode = mode) }
         // 约束：进入 AI 姿势模式默认展开左侧面板；其他模式收起
         _uiState.update { current ->
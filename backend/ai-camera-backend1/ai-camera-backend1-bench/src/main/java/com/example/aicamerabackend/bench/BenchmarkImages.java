@@ -0,0 +1,77 @@
+package com.example.aicamerabackend.bench;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+/**
+ * 生成接近真实拍照大小的 JPEG：平滑渐变叠加噪声（纯噪声压不动，纯色又太小），按目标字节数调整边长。
+ */
+public final class BenchmarkImages {
+
+    private BenchmarkImages() {
+    }
+
+    public static byte[] jpegOfSize(int targetBytes) {
+        return jpegOfSize(targetBytes, 42);
+    }
+
+    /**
+     * 不同 seed 生成内容不同（哈希不同）的图片，压测时避免全部命中网关缓存。
+     */
+    public static byte[] jpegOfSize(int targetBytes, long seed) {
+        // 4:3 画面，先按经验值估边长，再按实际大小修正两轮
+        double side = Math.sqrt(targetBytes * 2.0);
+        byte[] jpeg = null;
+        for (int round = 0; round < 3; round++) {
+            int width = (int) side;
+            int height = width * 3 / 4;
+            jpeg = encode(render(width, height, seed), 0.92f);
+            side *= Math.sqrt((double) targetBytes / jpeg.length);
+        }
+        return jpeg;
+    }
+
+    private static BufferedImage render(int width, int height, long seed) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(seed);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int noise = random.nextInt(48) - 24;
+                int r = clamp(x * 255 / width + noise);
+                int g = clamp(y * 255 / height + noise);
+                int b = clamp((x + y) * 255 / (width + height) + noise);
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return image;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    private static byte[] encode(BufferedImage image, float quality) {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.aicamerabackend.bench;
+
+import com.example.aicamera.data.network.pose.model.PoseResponse;
+import com.example.aicamera.data.network.pose.model.PoseResponseCborDecoder;
+import com.example.aicamerabackend.dto.PoseSugResponse;
+import com.example.aicamerabackend.dto.PoseSuggestion;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 响应体编码对比：JSON（Jackson 编码 + Android 端 Gson 反射解析）vs CBOR（Jackson 编码 + Android 端手写解码器）。
+ * 负载大小在 setUp 里打印；Android 端的解析代码是从 app 模块原样拷进来的，在 JVM 上跑只能看相对差距。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncodingBenchmark {
+
+    @Param({"json", "cbor"})
+    public String encoding;
+
+    // 一次响应里的姿势条数：3 是现在 9001 的常见返回，12 看列表变长时的趋势
+    @Param({"3", "12"})
+    public int suggestions;
+
+    private ObjectMapper mapper;
+    private Gson gson;
+    private PoseSugResponse response;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        mapper = "cbor".equals(encoding) ? CBORMapper.builder().build() : JsonMapper.builder().build();
+        gson = new Gson();
+        response = response(suggestions);
+        payload = mapper.writeValueAsBytes(response);
+        System.out.printf("%n[payload] encoding=%s suggestions=%d bytes=%d%n", encoding, suggestions, payload.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return mapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public PoseResponse clientParse() {
+        if ("cbor".equals(encoding)) {
+            return PoseResponseCborDecoder.decode(payload);
+        }
+        return gson.fromJson(new String(payload, StandardCharsets.UTF_8), PoseResponse.class);
+    }
+
+    static PoseSugResponse response(int suggestions) {
+        String[][] samples = {
+                {"侧身抬手", "身体侧 30°", "右手抬到额头附近", "肩放松"},
+                {"微仰头", "下巴抬一点", "眼神看镜头上方", "自然微笑"},
+                {"交叉腿显腿长", "双腿交叉", "重心放后腿", "前脚尖点地"},
+        };
+        List<PoseSuggestion> list = new ArrayList<>(suggestions);
+        for (int i = 0; i < suggestions; i++) {
+            String[] sample = samples[i % samples.length];
+            list.add(new PoseSuggestion("p" + (i + 1), sample[0], i + 1,
+                    new String[]{sample[1], sample[2], sample[3]}));
+        }
+        return new PoseSugResponse(
+                "0f8e6c1a-5d2b-4b7e-9a61-3c2d1e0f9a8b",
+                "https://example.com/pose/p1.png",
+                "推荐姿势：侧身抬手。身体侧一点，右手抬到额头附近，肩放松。",
+                "好，现在身体侧一点点，肩放松，右手抬到额头附近，保持两秒。",
+                list);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.aicamerabackend.bench;
+
+import com.example.aicamerabackend.AiCameraBackendApplication;
+import com.example.aicamerabackend.dto.PoseSugResponse;
+import com.example.aicamerabackend.service.GuidanceService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GuidanceService.analyzeFrame 的网关侧开销：上游是进程内的 Reactor Netty 假 /posesug（立即返回固定 JSON），
+ * 因此测到的是接收、规范化、熔断 / 限流 / 选副本、上游 HTTP 往返和响应解析的总和。
+ * 结果缓存和近重复复用关闭，每次都真正调用上游。另测 fallback mock 的构造开销。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GuidanceServiceBenchmark {
+
+    private static final String STUB_RESPONSE = "{\"sessionId\":\"stub\",\"poseImageUrl\":\"https://example.com/pose/p1.png\","
+            + "\"guideText\":\"推荐姿势：侧身抬手。\",\"voiceAudioText\":\"身体侧一点点，肩放松。\","
+            + "\"poseSuggestions\":[{\"id\":\"p1\",\"name\":\"侧身抬手\",\"priority\":1,\"tips\":[\"身体侧 30°\",\"肩放松\"]}]}";
+
+    @Param({"300"})
+    public int imageKb;
+
+    private DisposableServer stub;
+    private ConfigurableApplicationContext context;
+    private GuidanceService guidanceService;
+    private BytesFilePart frame;
+
+    @Setup
+    public void setUp() {
+        byte[] response = STUB_RESPONSE.getBytes(StandardCharsets.UTF_8);
+        stub = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.post("/posesug", (request, out) -> request.receive().then()
+                        .then(out.header("Content-Type", "application/json")
+                                .sendByteArray(Mono.just(response)).then())))
+                .bindNow();
+        context = new SpringApplication(AiCameraBackendApplication.class).run(
+                "--spring.main.web-application-type=none",
+                "--ai.pose.base-url=http://localhost:" + stub.port(),
+                "--ai.pose.cache.enabled=false",
+                "--ai.pose.dedupe.enabled=false",
+                "--logging.level.root=WARN");
+        guidanceService = context.getBean(GuidanceService.class);
+        frame = new BytesFilePart("frame.jpg", BenchmarkImages.jpegOfSize(imageKb * 1024));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        stub.disposeNow();
+    }
+
+    @Benchmark
+    public PoseSugResponse analyzeFrame() {
+        return guidanceService.analyzeFrame(frame, "bench", null, null, System.nanoTime()).block().response();
+    }
+
+    @Benchmark
+    public PoseSugResponse analyzeFrameMock() {
+        return guidanceService.analyzeFrameMock("bench", "拍全身", null);
+    }
+}
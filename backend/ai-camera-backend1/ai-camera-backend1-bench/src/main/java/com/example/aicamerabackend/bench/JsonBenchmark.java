@@ -0,0 +1,50 @@
+package com.example.aicamerabackend.bench;
+
+import com.example.aicamerabackend.dto.PoseSugResponse;
+import com.example.aicamerabackend.dto.PoseSuggestion;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PoseSugResponse 的 JSON 序列化 / 反序列化：网关对外响应与解析 9001 返回都走这一步。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+    private JsonMapper jsonMapper;
+    private PoseSugResponse response;
+    private byte[] json;
+
+    @Setup
+    public void setUp() {
+        jsonMapper = JsonMapper.builder().build();
+        response = new PoseSugResponse(
+                "0f8e6c1a-5d2b-4b7e-9a61-3c2d1e0f9a8b",
+                "https://example.com/pose/p1.png",
+                "推荐姿势：侧身抬手。身体侧一点，右手抬到额头附近，肩放松。",
+                "好，现在身体侧一点点，肩放松，右手抬到额头附近，保持两秒。",
+                List.of(
+                        new PoseSuggestion("p1", "侧身抬手", 1, new String[]{"身体侧 30°", "右手抬到额头附近", "肩放松"}),
+                        new PoseSuggestion("p2", "微仰头", 2, new String[]{"下巴抬一点", "眼神看镜头上方", "自然微笑"}),
+                        new PoseSuggestion("p3", "交叉腿显腿长", 3, new String[]{"双腿交叉", "重心放后腿", "前脚尖点地"})));
+        json = jsonMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return jsonMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public PoseSugResponse deserialize() {
+        return jsonMapper.readValue(json, PoseSugResponse.class);
+    }
+}
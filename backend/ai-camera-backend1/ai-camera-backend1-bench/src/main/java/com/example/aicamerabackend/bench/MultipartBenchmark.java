@@ -0,0 +1,89 @@
+package com.example.aicamerabackend.bench;
+
+import com.example.aicamerabackend.image.FrameImage;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpInputMessage;
+import org.springframework.http.codec.multipart.DefaultPartHttpMessageReader;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.codec.multipart.Part;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /api/frame/analyze 的 multipart 解析：与 WebFlux 相同的 DefaultPartHttpMessageReader（max-in-memory-size=8MB），
+ * 图片 part 再交给 FrameImage.receive（边收边算 SHA-256），即网关收一帧的完整开销。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultipartBenchmark {
+
+    private static final String BOUNDARY = "bench-boundary-7d1f";
+
+    @Param({"1", "3", "5"})
+    public int imageMb;
+
+    private byte[] body;
+    private DefaultPartHttpMessageReader reader;
+    private HttpHeaders headers;
+
+    @Setup
+    public void setUp() {
+        byte[] jpeg = BenchmarkImages.jpegOfSize(imageMb * 1024 * 1024);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(jpeg.length + 1024);
+        writeText(out, "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"sessionId\"\r\n\r\nbench\r\n");
+        writeText(out, "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"image\"; filename=\"frame.jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n");
+        out.writeBytes(jpeg);
+        writeText(out, "\r\n--" + BOUNDARY + "--\r\n");
+        body = out.toByteArray();
+
+        reader = new DefaultPartHttpMessageReader();
+        reader.setMaxInMemorySize(8 * 1024 * 1024);
+        headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("multipart/form-data; boundary=" + BOUNDARY));
+        headers.setContentLength(body.length);
+    }
+
+    @Benchmark
+    public long parseFrameUpload() {
+        ReactiveHttpInputMessage message = new ReactiveHttpInputMessage() {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return BytesFilePart.chunks(body);
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        };
+        return reader.read(ResolvableType.forClass(Part.class), message, Map.of())
+                .concatMap(part -> part instanceof FilePart file
+                        ? FrameImage.receive(file.content(), file.filename()).map(frame -> {
+                            long size = frame.size();
+                            frame.release();
+                            return size;
+                        })
+                        : part.content().doOnNext(DataBufferUtils::release).then(Mono.just(0L)))
+                .reduce(0L, Long::sum)
+                .block();
+    }
+
+    private static void writeText(ByteArrayOutputStream out, String text) {
+        out.writeBytes(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.aicamerabackend.bench.load;
+
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 进程内的假 /posesug：读完请求体后按配置的分布延迟，再返回固定 JSON、HTTP 500，或者一直不响应。
+ * 延迟用 Mono.delay 实现，不占线程，单机上可以模拟上千个同时在途的推理请求。
+ * 每个场景开始前调用 configure 切换延迟分布和错误率。
+ */
+final class FakePoseServer implements AutoCloseable {
+
+    private static final byte[] RESPONSE = ("{\"sessionId\":\"stub\",\"poseImageUrl\":\"https://example.com/pose/p1.png\","
+            + "\"guideText\":\"推荐姿势：侧身抬手。\",\"voiceAudioText\":\"身体侧一点点，肩放松。\","
+            + "\"poseSuggestions\":[{\"id\":\"p1\",\"name\":\"侧身抬手\",\"priority\":1,\"tips\":[\"身体侧 30°\",\"肩放松\"]}]}")
+            .getBytes(StandardCharsets.UTF_8);
+    private static final Duration HANG = Duration.ofMinutes(5);
+
+    private volatile LatencyDistribution latency = () -> 0;
+    private volatile double errorRate;
+    private volatile double hangRate;
+    private final DisposableServer server;
+
+    FakePoseServer(int port) {
+        this.server = HttpServer.create()
+                .port(port)
+                .route(routes -> routes.post("/posesug", (request, response) -> request.receive().then()
+                        .then(Mono.defer(() -> {
+                            double roll = ThreadLocalRandom.current().nextDouble();
+                            if (roll < hangRate) {
+                                return Mono.delay(HANG).then();
+                            }
+                            Mono<Long> delay = Mono.delay(Duration.ofNanos(latency.sampleNanos()));
+                            if (roll < hangRate + errorRate) {
+                                return delay.then(response.status(500).send().then());
+                            }
+                            return delay.then(response.header("Content-Type", "application/json")
+                                    .sendByteArray(Mono.just(RESPONSE)).then());
+                        }))))
+                .bindNow();
+    }
+
+    void configure(Scenario scenario) {
+        this.latency = LatencyDistribution.parse(scenario.latency());
+        this.errorRate = scenario.errorRate();
+        this.hangRate = scenario.hangRate();
+    }
+
+    int port() {
+        return server.port();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.aicamerabackend.bench.load;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 假上游的响应延迟分布，写法：
+ * - fixed:200ms
+ * - uniform:100ms:300ms
+ * - exp:200ms（均值）
+ * - lognormal:200ms:0.5（中位数、sigma；长尾，最接近真实模型推理）
+ */
+interface LatencyDistribution {
+
+    long sampleNanos();
+
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.split(":");
+        return switch (parts[0]) {
+            case "fixed" -> {
+                long nanos = nanos(parts[1]);
+                yield () -> nanos;
+            }
+            case "uniform" -> {
+                long min = nanos(parts[1]);
+                long max = nanos(parts[2]);
+                yield () -> ThreadLocalRandom.current().nextLong(min, max + 1);
+            }
+            case "exp" -> {
+                long mean = nanos(parts[1]);
+                yield () -> (long) (-mean * Math.log(1 - ThreadLocalRandom.current().nextDouble()));
+            }
+            case "lognormal" -> {
+                double mu = Math.log(nanos(parts[1]));
+                double sigma = Double.parseDouble(parts[2]);
+                yield () -> (long) Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian());
+            }
+            default -> throw new IllegalArgumentException("unknown latency distribution: " + spec);
+        };
+    }
+
+    static long nanos(String duration) {
+        return DurationStyle.detectAndParse(duration).toNanos();
+    }
+
+    static Duration duration(String duration) {
+        return DurationStyle.detectAndParse(duration);
+    }
+}
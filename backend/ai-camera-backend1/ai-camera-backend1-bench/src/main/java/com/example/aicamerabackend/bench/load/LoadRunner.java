@@ -0,0 +1,208 @@
+package com.example.aicamerabackend.bench.load;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 按场景向网关 /api/frame/analyze 发帧并记录延迟。
+ * 每个请求都有一个“计划发出时刻”，延迟从计划时刻算起：网关变慢导致发送推迟时，推迟的时间也计入延迟，
+ * 这样直方图不会因为协调遗漏（coordinated omission）而低估尾延迟。预热期间发出的请求不计入结果。
+ */
+final class LoadRunner implements AutoCloseable {
+
+    private static final String BOUNDARY = "load-boundary-5c2e";
+    private static final byte[] TAIL = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8);
+    private static final String MOCK_MARKER = "（mock）";
+    private static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(30);
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final String analyzeUrl;
+    private final List<byte[]> images;
+    private final ConnectionProvider connectionProvider;
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService pacer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "load-pacer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    LoadRunner(String gatewayUrl, List<byte[]> images) {
+        this.analyzeUrl = gatewayUrl + "/api/frame/analyze";
+        this.images = images;
+        this.connectionProvider = ConnectionProvider.builder("load")
+                .maxConnections(20_000)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        this.httpClient = HttpClient.create(connectionProvider)
+                .responseTimeout(RESPONSE_TIMEOUT)
+                .headers(headers -> headers.set(HttpHeaderNames.CONTENT_TYPE, "multipart/form-data; boundary=" + BOUNDARY));
+    }
+
+    ScenarioResult run(Scenario scenario) throws InterruptedException {
+        Run run = new Run(scenario);
+        long start = System.nanoTime();
+        run.measureStart = start + scenario.warmup().toNanos();
+        run.end = run.measureStart + scenario.duration().toNanos();
+        if (scenario.open()) {
+            runOpen(run, start);
+        } else {
+            runClosed(run, start);
+        }
+        // 停止发送后等在途请求结束；responseTimeout 保证一定会结束
+        run.inflightDone.await(RESPONSE_TIMEOUT.toSeconds() + 5, TimeUnit.SECONDS);
+        return new ScenarioResult(scenario, run.sent.get(), run.ok.get(), run.fallback.get(), run.superseded.get(),
+                run.errors.get(), scenario.duration().toNanos() / 1e9, run.histogram);
+    }
+
+    private void runOpen(Run run, long start) {
+        Scenario scenario = run.scenario;
+        double meanIntervalNanos = 1e9 / scenario.rate();
+        long next = start;
+        while (next < run.end) {
+            long wait;
+            while ((wait = next - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            String sessionId = "load-s" + ThreadLocalRandom.current().nextInt(scenario.sessions());
+            fire(run, next, sessionId).subscribe();
+            next += scenario.poisson()
+                    ? (long) (-meanIntervalNanos * Math.log(1 - ThreadLocalRandom.current().nextDouble()))
+                    : (long) meanIntervalNanos;
+        }
+        run.releaseIssuer();
+    }
+
+    private void runClosed(Run run, long start) throws InterruptedException {
+        Scenario scenario = run.scenario;
+        int users = scenario.users();
+        long intervalNanos = scenario.rate() > 0 ? (long) (users * 1e9 / scenario.rate()) : 0;
+        CountDownLatch usersDone = new CountDownLatch(users);
+        for (int user = 0; user < users; user++) {
+            // 定速时把各用户的计划时刻错开，避免同一瞬间一起发
+            long offset = intervalNanos * user / users;
+            closedUser(run, user, start + offset, intervalNanos, 0, usersDone);
+        }
+        usersDone.await();
+        run.releaseIssuer();
+    }
+
+    private void closedUser(Run run, int user, long firstIntended, long intervalNanos, long k, CountDownLatch usersDone) {
+        long now = System.nanoTime();
+        long intended = intervalNanos > 0 ? firstIntended + k * intervalNanos : Math.max(now, firstIntended);
+        if (intended >= run.end) {
+            usersDone.countDown();
+            return;
+        }
+        Runnable send = () -> fire(run, intended, "load-u" + user)
+                .doFinally(signal -> closedUser(run, user, firstIntended, intervalNanos, k + 1, usersDone))
+                .subscribe();
+        long wait = intended - now;
+        if (wait > 0) {
+            pacer.schedule(send, wait, TimeUnit.NANOSECONDS);
+        } else {
+            send.run();
+        }
+    }
+
+    private Mono<Void> fire(Run run, long intendedNanos, String sessionId) {
+        boolean measured = intendedNanos >= run.measureStart;
+        if (measured) {
+            run.sent.incrementAndGet();
+        }
+        run.inflight.incrementAndGet();
+        byte[] image = images.get(ThreadLocalRandom.current().nextInt(images.size()));
+        byte[] head = ("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"sessionId\"\r\n\r\n" + sessionId + "\r\n"
+                + "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"image\"; filename=\"frame.jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        Flux<ByteBuf> body = Flux.just(Unpooled.wrappedBuffer(head), Unpooled.wrappedBuffer(image), Unpooled.wrappedBuffer(TAIL));
+        return httpClient
+                .headers(headers -> headers.set(HttpHeaderNames.CONTENT_LENGTH, head.length + image.length + TAIL.length))
+                .post()
+                .uri(analyzeUrl)
+                .send(body)
+                .responseSingle((response, content) -> content.asString(StandardCharsets.UTF_8)
+                        .defaultIfEmpty("")
+                        .map(text -> outcome(response.status().code(), text)))
+                .onErrorReturn(Outcome.ERROR)
+                .doOnNext(outcome -> {
+                    if (measured) {
+                        run.record(outcome, intendedNanos);
+                    }
+                })
+                .doFinally(signal -> run.onRequestFinished())
+                .then();
+    }
+
+    private static Outcome outcome(int status, String body) {
+        if (status == 200) {
+            return body.contains(MOCK_MARKER) ? Outcome.FALLBACK : Outcome.OK;
+        }
+        return status == 409 ? Outcome.SUPERSEDED : Outcome.ERROR;
+    }
+
+    @Override
+    public void close() {
+        pacer.shutdownNow();
+        connectionProvider.dispose();
+    }
+
+    private enum Outcome { OK, FALLBACK, SUPERSEDED, ERROR }
+
+    private static final class Run {
+        final Scenario scenario;
+        final Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        final AtomicLong sent = new AtomicLong();
+        final AtomicLong ok = new AtomicLong();
+        final AtomicLong fallback = new AtomicLong();
+        final AtomicLong superseded = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        // 发送方自己占 1，发完后释放；归零时说明所有请求都已结束
+        final AtomicLong inflight = new AtomicLong(1);
+        final CountDownLatch inflightDone = new CountDownLatch(1);
+        volatile long measureStart;
+        volatile long end;
+
+        Run(Scenario scenario) {
+            this.scenario = scenario;
+        }
+
+        void record(Outcome outcome, long intendedNanos) {
+            long micros = Math.min(HIGHEST_TRACKABLE_MICROS, (System.nanoTime() - intendedNanos) / 1000);
+            histogram.recordValue(Math.max(0, micros));
+            switch (outcome) {
+                case OK -> ok.incrementAndGet();
+                case FALLBACK -> fallback.incrementAndGet();
+                case SUPERSEDED -> superseded.incrementAndGet();
+                case ERROR -> errors.incrementAndGet();
+            }
+        }
+
+        void onRequestFinished() {
+            if (inflight.decrementAndGet() == 0) {
+                inflightDone.countDown();
+            }
+        }
+
+        void releaseIssuer() {
+            onRequestFinished();
+        }
+    }
+}
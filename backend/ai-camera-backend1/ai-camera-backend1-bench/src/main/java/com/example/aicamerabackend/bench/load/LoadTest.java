@@ -0,0 +1,149 @@
+package com.example.aicamerabackend.bench.load;
+
+import com.example.aicamerabackend.AiCameraBackendApplication;
+import com.example.aicamerabackend.bench.BenchmarkImages;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 网关压测入口：起一个假 /posesug，默认再在进程内起一个网关指向它，依次跑各场景，输出吞吐、p50/p99/p999 和 fallback 比例。
+ * <pre>
+ * mvn -Pload verify -Dload.args="--scenario=open-200;rate=200 --scenario=closed-64;mode=closed;users=64"
+ * </pre>
+ * 参数：
+ * - --scenario=...：可重复，写法见 {@link Scenario}；不给时跑一组逐级加压的开环场景，用来找饱和点
+ * - --gateway=http://host:port：压外部已启动的网关（需把它的 ai.pose.base-url 指向 --stub-port）
+ * - --stub-port=0：假上游端口，压外部网关时默认 9001
+ * - --image-kb=300、--images=32：上传帧的大小和不同图片的数量
+ * - --out=target/loadtest-result.json：结果 JSON；每个场景的完整延迟分布另存为同目录下的 .hgrm
+ * - 其余 --ai.* / --spring.* / --management.* / --logging.* 原样传给进程内网关；
+ *   进程内网关默认关闭结果缓存和近重复复用（见 GATEWAY_DEFAULTS），显式传参可覆盖
+ */
+public final class LoadTest {
+
+    private static final List<String> DEFAULT_SCENARIOS = List.of(
+            "open-25;rate=25;duration=20s",
+            "open-50;rate=50;duration=20s",
+            "open-100;rate=100;duration=20s",
+            "open-200;rate=200;duration=20s",
+            "open-400;rate=400;duration=20s",
+            "closed-64;mode=closed;users=64;duration=20s");
+
+    // 进程内网关的默认配置：关掉结果缓存和近重复复用，让每一帧都真正打到上游；
+    // 压测请求都来自本机同一 IP，限流也关掉；日志只留 ERROR，避免淹没报表
+    private static final Map<String, String> GATEWAY_DEFAULTS = Map.of(
+            "server.port", "0",
+            "logging.level.root", "ERROR",
+            "ai.pose.cache.enabled", "false",
+            "ai.pose.dedupe.enabled", "false",
+            "ai.pose.rate-limit.enabled", "false");
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String gateway = null;
+        Integer stubPort = null;
+        int imageKb = 300;
+        int imageCount = 32;
+        String out = "target/loadtest-result.json";
+        List<Scenario> scenarios = new ArrayList<>();
+        List<String> gatewayArgs = new ArrayList<>();
+        for (String arg : args) {
+            String value = arg.contains("=") ? arg.substring(arg.indexOf('=') + 1) : "";
+            if (arg.startsWith("--scenario=")) {
+                scenarios.add(Scenario.parse(value));
+            } else if (arg.startsWith("--gateway=")) {
+                gateway = value;
+            } else if (arg.startsWith("--stub-port=")) {
+                stubPort = Integer.parseInt(value);
+            } else if (arg.startsWith("--image-kb=")) {
+                imageKb = Integer.parseInt(value);
+            } else if (arg.startsWith("--images=")) {
+                imageCount = Integer.parseInt(value);
+            } else if (arg.startsWith("--out=")) {
+                out = value;
+            } else if (arg.startsWith("--ai.") || arg.startsWith("--spring.")
+                    || arg.startsWith("--management.") || arg.startsWith("--logging.")) {
+                gatewayArgs.add(arg);
+            } else {
+                throw new IllegalArgumentException("unknown argument: " + arg);
+            }
+        }
+        GATEWAY_DEFAULTS.forEach((key, value) -> {
+            if (gatewayArgs.stream().noneMatch(arg -> arg.startsWith("--" + key + "="))) {
+                gatewayArgs.add("--" + key + "=" + value);
+            }
+        });
+        if (scenarios.isEmpty()) {
+            DEFAULT_SCENARIOS.forEach(spec -> scenarios.add(Scenario.parse(spec)));
+        }
+
+        List<byte[]> images = new ArrayList<>();
+        for (int i = 0; i < imageCount; i++) {
+            images.add(BenchmarkImages.jpegOfSize(imageKb * 1024, i));
+        }
+
+        List<ScenarioResult> results = new ArrayList<>();
+        ConfigurableApplicationContext context = null;
+        try (FakePoseServer upstream = new FakePoseServer(stubPort != null ? stubPort : gateway != null ? 9001 : 0)) {
+            if (gateway == null) {
+                gatewayArgs.add("--ai.pose.base-url=http://localhost:" + upstream.port());
+                context = new SpringApplication(AiCameraBackendApplication.class).run(gatewayArgs.toArray(String[]::new));
+                gateway = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            }
+            System.out.println("gateway=" + gateway + ", fake upstream port=" + upstream.port()
+                    + ", images=" + imageCount + " x " + imageKb + "KB");
+            printHeader();
+            try (LoadRunner runner = new LoadRunner(gateway, images)) {
+                for (Scenario scenario : scenarios) {
+                    upstream.configure(scenario);
+                    ScenarioResult result = runner.run(scenario);
+                    results.add(result);
+                    printRow(result);
+                }
+            }
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+        write(results, new File(out));
+        System.exit(0);
+    }
+
+    private static void printHeader() {
+        System.out.printf("%-16s %-6s %8s %8s %8s %9s %9s %9s %9s %9s%n",
+                "scenario", "mode", "offered", "tput", "fallback", "errors", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)");
+    }
+
+    private static void printRow(ScenarioResult r) {
+        System.out.printf("%-16s %-6s %8.1f %8.1f %7.1f%% %9d %9.1f %9.1f %9.1f %9.1f%n",
+                r.scenario().name(), r.scenario().mode(), r.sent() / r.seconds(), r.throughput(),
+                r.fallbackRate() * 100, r.errors(), r.percentileMillis(50), r.percentileMillis(99),
+                r.percentileMillis(99.9), r.latencyMicros().getMaxValue() / 1000.0);
+    }
+
+    private static void write(List<ScenarioResult> results, File out) throws IOException {
+        File dir = out.getAbsoluteFile().getParentFile();
+        dir.mkdirs();
+        JsonMapper jsonMapper = JsonMapper.builder().enable(SerializationFeature.INDENT_OUTPUT).build();
+        jsonMapper.writeValue(out, results.stream().map(ScenarioResult::toMap).toList());
+        for (ScenarioResult result : results) {
+            try (PrintStream hgrm = new PrintStream(new FileOutputStream(new File(dir, "loadtest-" + result.scenario().name() + ".hgrm")))) {
+                result.latencyMicros().outputPercentileDistribution(hgrm, 1000.0);
+            }
+        }
+        System.out.println("results written to " + out.getPath());
+    }
+}
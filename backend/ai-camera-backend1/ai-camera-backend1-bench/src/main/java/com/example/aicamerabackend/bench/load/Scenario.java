@@ -0,0 +1,66 @@
+package com.example.aicamerabackend.bench.load;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 一个压测场景，命令行写法（分号分隔，除 name 外都可省略）：
+ * <pre>
+ * open-200;mode=open;rate=200;arrival=poisson;duration=30s;warmup=5s;sessions=200;latency=lognormal:300ms:0.5;errors=0.01
+ * closed-64;mode=closed;users=64;rate=100;duration=30s
+ * </pre>
+ * - open：按目标到达率发请求，不管之前的请求回没回来（arrival=constant|poisson）
+ * - closed：users 个用户各自“收到响应再发下一帧”；给了 rate 时每个用户按 rate/users 定速，
+ *   响应慢了就从计划时刻起算延迟（不给 rate 时退化为纯闭环，延迟即服务时间，存在协调遗漏）
+ * - latency / errors / hangs 配置假 /posesug 的延迟分布、HTTP 500 比例、不响应比例
+ */
+record Scenario(String name,
+                String mode,
+                double rate,
+                boolean poisson,
+                int users,
+                int sessions,
+                Duration duration,
+                Duration warmup,
+                String latency,
+                double errorRate,
+                double hangRate) {
+
+    static Scenario parse(String spec) {
+        String[] fields = spec.split(";");
+        Map<String, String> values = new HashMap<>();
+        for (int i = 1; i < fields.length; i++) {
+            int eq = fields[i].indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("malformed scenario field: " + fields[i]);
+            }
+            values.put(fields[i].substring(0, eq).strip(), fields[i].substring(eq + 1).strip());
+        }
+        String mode = values.getOrDefault("mode", "open");
+        if (!mode.equals("open") && !mode.equals("closed")) {
+            throw new IllegalArgumentException("mode must be open or closed: " + spec);
+        }
+        Scenario scenario = new Scenario(
+                fields[0].strip(),
+                mode,
+                Double.parseDouble(values.getOrDefault("rate", mode.equals("open") ? "100" : "0")),
+                values.getOrDefault("arrival", "poisson").equals("poisson"),
+                Integer.parseInt(values.getOrDefault("users", "64")),
+                Integer.parseInt(values.getOrDefault("sessions", "200")),
+                LatencyDistribution.duration(values.getOrDefault("duration", "30s")),
+                LatencyDistribution.duration(values.getOrDefault("warmup", "5s")),
+                values.getOrDefault("latency", "lognormal:300ms:0.5"),
+                Double.parseDouble(values.getOrDefault("errors", "0")),
+                Double.parseDouble(values.getOrDefault("hangs", "0")));
+        LatencyDistribution.parse(scenario.latency());
+        if (scenario.open() && scenario.rate() <= 0) {
+            throw new IllegalArgumentException("open-loop scenario needs rate > 0: " + spec);
+        }
+        return scenario;
+    }
+
+    boolean open() {
+        return mode.equals("open");
+    }
+}
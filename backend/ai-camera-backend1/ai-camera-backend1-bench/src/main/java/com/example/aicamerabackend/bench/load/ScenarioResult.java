@@ -0,0 +1,61 @@
+package com.example.aicamerabackend.bench.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 单个场景的结果。延迟直方图单位是微秒，从“计划发出时刻”算到收到完整响应。
+ * - ok：拿到 9001 的真实结果；fallback：网关回退了 mock；superseded：同会话更新的帧到达后被取消（409）
+ * - errors：其他非 200 响应、连接错误、客户端超时
+ */
+record ScenarioResult(Scenario scenario,
+                      long sent,
+                      long ok,
+                      long fallback,
+                      long superseded,
+                      long errors,
+                      double seconds,
+                      Histogram latencyMicros) {
+
+    long completed() {
+        return ok + fallback + superseded + errors;
+    }
+
+    double throughput() {
+        return (ok + fallback) / seconds;
+    }
+
+    double fallbackRate() {
+        long answered = ok + fallback + errors;
+        return answered == 0 ? 0 : (double) fallback / answered;
+    }
+
+    double percentileMillis(double percentile) {
+        return latencyMicros.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("scenario", scenario.name());
+        map.put("mode", scenario.mode());
+        map.put("targetRate", scenario.rate());
+        map.put("users", scenario.open() ? null : scenario.users());
+        map.put("upstreamLatency", scenario.latency());
+        map.put("upstreamErrorRate", scenario.errorRate());
+        map.put("sent", sent);
+        map.put("ok", ok);
+        map.put("fallback", fallback);
+        map.put("superseded", superseded);
+        map.put("errors", errors);
+        map.put("offeredRate", sent / seconds);
+        map.put("throughput", throughput());
+        map.put("fallbackRate", fallbackRate());
+        map.put("p50Ms", percentileMillis(50));
+        map.put("p99Ms", percentileMillis(99));
+        map.put("p999Ms", percentileMillis(99.9));
+        map.put("maxMs", latencyMicros.getMaxValue() / 1000.0);
+        return map;
+    }
+}
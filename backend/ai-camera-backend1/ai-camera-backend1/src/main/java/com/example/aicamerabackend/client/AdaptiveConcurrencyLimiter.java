@@ -0,0 +1,89 @@
+package com.example.aicamerabackend.client;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 9001 的自适应并发上限（AIMD）。
+ * - 调用在 latencySlo 内成功：上限加性增长，每个“满窗口”约 +1（每次 +1/limit）
+ * - 超过 latencySlo、超时或失败：上限乘性下降（× backoffRatio）
+ * - 在途数达到上限的新请求立即拒绝（回退 mock），网关不会积压上游在 SLO 内做不完的活
+ * - 指标：pose.upstream.limit、pose.upstream.inflight
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencySloNanos;
+    private final double backoffRatio;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private double limit;
+
+    public AdaptiveConcurrencyLimiter(MeterRegistry meterRegistry,
+                                      @Value("${ai.pose.limit.initial:20}") int initialLimit,
+                                      @Value("${ai.pose.limit.min:2}") int minLimit,
+                                      @Value("${ai.pose.limit.max:500}") int maxLimit,
+                                      @Value("${ai.pose.limit.latency-slo:2s}") Duration latencySlo,
+                                      @Value("${ai.pose.limit.backoff-ratio:0.9}") double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencySloNanos = latencySlo.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.limit = initialLimit;
+        Gauge.builder("pose.upstream.limit", this, AdaptiveConcurrencyLimiter::getLimit).register(meterRegistry);
+        Gauge.builder("pose.upstream.inflight", inflight, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * @return 是否拿到一个在途名额；拿到后必须以 onSuccess / onDropped / onIgnored 之一归还
+     */
+    public boolean tryAcquire() {
+        int max = getLimit();
+        while (true) {
+            int current = inflight.get();
+            if (current >= max) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void onSuccess(long latencyNanos) {
+        inflight.decrementAndGet();
+        synchronized (this) {
+            if (latencyNanos <= latencySloNanos) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            } else {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            }
+        }
+    }
+
+    public void onDropped() {
+        inflight.decrementAndGet();
+        synchronized (this) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        }
+    }
+
+    public void onIgnored() {
+        inflight.decrementAndGet();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+}
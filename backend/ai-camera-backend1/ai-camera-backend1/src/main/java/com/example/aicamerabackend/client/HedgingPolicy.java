@@ -0,0 +1,128 @@
+package com.example.aicamerabackend.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * 对冲请求策略：主请求超过“近期成功延迟的 p95”仍未返回时，向另一个副本再发一份，先到先得。
+ * - 延迟阈值：最近 window 次成功调用的分位数（默认 p95），不低于 min-delay；样本不足时用 initial-delay
+ * - 预算：每个主请求存入 budget-percent% 个令牌，每次对冲花 1 个（上限 max-tokens），
+ *   对冲带来的额外负载不超过主流量的 budget-percent%
+ * - 指标：pose.upstream.hedge{outcome=sent|won|skipped}、pose.upstream.hedge.delay
+ */
+@Component
+public class HedgingPolicy {
+
+    private static final int MIN_SAMPLES = 20;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long initialDelayNanos;
+    private final double tokensPerRequest;
+    private final double maxTokens;
+
+    private final long[] samples;
+    private int sampleIndex;
+    private int sampleCount;
+    private long cachedDelayNanos;
+    private int samplesSinceRecompute;
+    private double tokens;
+
+    private final Counter sent;
+    private final Counter won;
+    private final Counter skipped;
+
+    public HedgingPolicy(MeterRegistry meterRegistry,
+                         @Value("${ai.pose.hedge.enabled:false}") boolean enabled,
+                         @Value("${ai.pose.hedge.percentile:0.95}") double percentile,
+                         @Value("${ai.pose.hedge.min-delay:50ms}") Duration minDelay,
+                         @Value("${ai.pose.hedge.initial-delay:1s}") Duration initialDelay,
+                         @Value("${ai.pose.hedge.window:1000}") int window,
+                         @Value("${ai.pose.hedge.budget-percent:10}") double budgetPercent,
+                         @Value("${ai.pose.hedge.max-tokens:20}") double maxTokens) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.initialDelayNanos = initialDelay.toNanos();
+        this.samples = new long[window];
+        this.cachedDelayNanos = initialDelayNanos;
+        this.tokensPerRequest = budgetPercent / 100.0;
+        this.maxTokens = maxTokens;
+        this.sent = Counter.builder("pose.upstream.hedge").tag("outcome", "sent").register(meterRegistry);
+        this.won = Counter.builder("pose.upstream.hedge").tag("outcome", "won").register(meterRegistry);
+        this.skipped = Counter.builder("pose.upstream.hedge").tag("outcome", "skipped").register(meterRegistry);
+        Gauge.builder("pose.upstream.hedge.delay", this, p -> p.delay().toMillis())
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * 每个主请求调用一次：为对冲预算存入令牌。
+     */
+    public synchronized void onPrimary() {
+        tokens = Math.min(maxTokens, tokens + tokensPerRequest);
+    }
+
+    /**
+     * 到了对冲时刻、已经拿到并发名额后调用：预算够则扣 1 个令牌并返回 true。
+     */
+    public synchronized boolean tryHedge() {
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            sent.increment();
+            return true;
+        }
+        skipped.increment();
+        return false;
+    }
+
+    /**
+     * 并发名额不够、没有发出对冲时调用：只计数，不动预算。
+     */
+    public void onSkipped() {
+        skipped.increment();
+    }
+
+    public void onHedgeWon() {
+        won.increment();
+    }
+
+    public synchronized void recordLatency(long latencyNanos) {
+        samples[sampleIndex] = latencyNanos;
+        sampleIndex = (sampleIndex + 1) % samples.length;
+        if (sampleCount < samples.length) {
+            sampleCount++;
+        }
+        // 分位数不必每次都算：每积累 1/10 窗口的新样本重算一次
+        if (++samplesSinceRecompute >= Math.max(1, samples.length / 10) || sampleCount == MIN_SAMPLES) {
+            samplesSinceRecompute = 0;
+            recompute();
+        }
+    }
+
+    public synchronized Duration delay() {
+        return Duration.ofNanos(cachedDelayNanos);
+    }
+
+    private void recompute() {
+        if (sampleCount < MIN_SAMPLES) {
+            cachedDelayNanos = initialDelayNanos;
+            return;
+        }
+        long[] sorted = Arrays.copyOf(samples, sampleCount);
+        Arrays.sort(sorted);
+        int index = Math.min(sampleCount - 1, (int) Math.ceil(percentile * sampleCount) - 1);
+        cachedDelayNanos = Math.max(minDelayNanos, sorted[Math.max(0, index)]);
+    }
+}
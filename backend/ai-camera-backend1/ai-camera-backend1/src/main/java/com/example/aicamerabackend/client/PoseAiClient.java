@@ -1,60 +1,219 @@
 package com.example.aicamerabackend.client;
 
 import com.example.aicamerabackend.dto.PoseSugResponse;
+import com.example.aicamerabackend.image.FrameBufferPool;
+import com.example.aicamerabackend.image.FrameImage;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
 import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 @Component
 @RequiredArgsConstructor
 public class PoseAiClient {
+    // 阻塞模式下从 MultipartFile 流式读取图片的分块大小
+    private static final int STREAM_CHUNK_SIZE = 64 * 1024;
+
     private final WebClient webClient;
+    private final PoseCircuitBreaker circuitBreaker;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final PoseUpstreamBalancer balancer;
+    private final HedgingPolicy hedgingPolicy;
+    private final FrameBufferPool bufferPool;
 
-    @Value("${ai.pose.base-url}")
-    private String baseUrl;
+    // 单次 9001 调用的超时
+    @Value("${ai.pose.timeout:3s}")
+    private Duration timeout;
 
-    public PoseSugResponse poseSug(MultipartFile image, String sessionId, String userIntent, String meta) {
-        try {
-            MultipartBodyBuilder builder = new MultipartBodyBuilder();
+    // 阻塞模式（虚拟线程）下同时打到 9001 的请求上限；虚拟线程几乎没有数量限制，必须在这里兜住上游
+    @Value("${ai.pose.max-concurrent-calls:64}")
+    private int maxConcurrentCalls;
 
-            ByteArrayResource imageResource = new ByteArrayResource(image.getBytes()) {
-                @Override
-                public String getFilename() {
-                    return image.getOriginalFilename();
-                }
-            };
+    // 拿不到许可时最多等多久，超时直接走 mock
+    @Value("${ai.pose.permit-timeout-ms:1000}")
+    private long permitTimeoutMs;
 
-            builder.part("sessionId", sessionId);
-            builder.part("image", imageResource).contentType(MediaType.APPLICATION_OCTET_STREAM);
+    private Semaphore permits;
 
-            if (userIntent != null && !userIntent.isBlank()) {
-                builder.part("userIntent", userIntent);
-            }
-            if (meta != null && !meta.isBlank()) {
-                builder.part("meta", meta);
-            }
+    @PostConstruct
+    void initPermits() {
+        permits = new Semaphore(maxConcurrentCalls, true);
+    }
 
-            return webClient.post()
-                    .uri(baseUrl + "/posesug")
-                    .contentType(MediaType.MULTIPART_FORM_DATA)
-                    .body(BodyInserters.fromMultipartData(builder.build()))
-                    .retrieve()
-                    .bodyToMono(PoseSugResponse.class)
-                    .timeout(Duration.ofSeconds(3))
-                    .onErrorResume(e -> Mono.error(new RuntimeException("Pose AI call failed: " + e.getMessage(), e)))
-                    .block();
+    /**
+     * 调用 9001 /posesug。返回的 Mono 不在任何线程上阻塞等待，由订阅方（WebFlux）驱动。
+     * 图片以 DataBuffer 流的形式从入站请求直接转写到出站 multipart，不在堆上拼出完整 byte[]。
+     */
+    public Mono<PoseSugResponse> poseSug(FrameImage image, String sessionId, String userIntent, String meta) {
+        return guarded(replica -> post(replica, image.content(), image.filename(), sessionId, userIntent, meta))
+                .onErrorResume(e -> Mono.error(new RuntimeException("Pose AI call failed: " + e.getMessage(), e)));
+    }
 
+    /**
+     * 阻塞版本：供 servlet + 虚拟线程模式使用。调用线程（虚拟线程）先排队拿许可，再同步等待 9001 返回。
+     */
+    public PoseSugResponse poseSugBlocking(MultipartFile image, String sessionId, String userIntent, String meta) {
+        boolean acquired = false;
+        try {
+            acquired = permits.tryAcquire(permitTimeoutMs, TimeUnit.MILLISECONDS);
+            if (!acquired) {
+                throw new PoseUpstreamRejectedException("permit-timeout");
+            }
+            // 分块取自池化的 direct buffer，Netty 写出后归还，不再每个分块分配一个堆数组
+            Flux<DataBuffer> content = DataBufferUtils.readInputStream(
+                    image::getInputStream, bufferPool.bufferFactory(), STREAM_CHUNK_SIZE);
+            return guarded(replica -> post(replica, content, image.getOriginalFilename(), sessionId, userIntent, meta))
+                    .block();
         } catch (Exception e) {
             throw new RuntimeException("Pose AI call failed: " + e.getMessage(), e);
+        } finally {
+            if (acquired) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * 熔断 + 自适应并发上限：熔断打开或在途已满时立刻失败，不等超时；
+     * 通过后由 PoseUpstreamBalancer 选副本。开启对冲时，主请求慢于阈值会向另一个副本再发一份，先到先得，
+     * 输的那份被取消。熔断器按整体结果计数，并发上限和副本统计按每一次实际发出的请求计数。
+     */
+    private Mono<PoseSugResponse> guarded(Function<PoseUpstreamBalancer.Replica, Mono<PoseSugResponse>> call) {
+        return Mono.defer(() -> {
+            if (!circuitBreaker.tryAcquire()) {
+                return Mono.error(new PoseUpstreamRejectedException("circuit-open"));
+            }
+            if (!concurrencyLimiter.tryAcquire()) {
+                circuitBreaker.onIgnored();
+                return Mono.error(new PoseUpstreamRejectedException("concurrency-limit"));
+            }
+            PoseUpstreamBalancer.Replica primary = balancer.acquire(null);
+            Mono<PoseSugResponse> response = hedgingPolicy.enabled() && balancer.replicas().size() > 1
+                    ? hedged(primary, call)
+                    : attempt(primary, call);
+            return response
+                    .timeout(timeout)
+                    .doFinally(signal -> {
+                        switch (signal) {
+                            case ON_COMPLETE -> circuitBreaker.onSuccess();
+                            case ON_ERROR -> circuitBreaker.onFailure();
+                            default -> circuitBreaker.onIgnored();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * 一次实际发往某个副本的请求（调用前已拿到并发名额）。
+     */
+    private Mono<PoseSugResponse> attempt(PoseUpstreamBalancer.Replica replica,
+                                          Function<PoseUpstreamBalancer.Replica, Mono<PoseSugResponse>> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.apply(replica)
+                    .doFinally(signal -> {
+                        long latency = System.nanoTime() - start;
+                        switch (signal) {
+                            case ON_COMPLETE -> {
+                                concurrencyLimiter.onSuccess(latency);
+                                balancer.onSuccess(replica, latency);
+                                hedgingPolicy.recordLatency(latency);
+                            }
+                            case ON_ERROR -> {
+                                concurrencyLimiter.onDropped();
+                                balancer.onFailure(replica);
+                            }
+                            default -> {
+                                concurrencyLimiter.onIgnored();
+                                balancer.onIgnored(replica);
+                            }
+                        }
+                    });
+        });
+    }
+
+    /**
+     * 主请求 + 对冲请求，先到的成功结果胜出：
+     * - 主请求在对冲阈值之前结束（成功或失败）时，等待中的 delay 随之取消，错误立刻向上传递，不等到阈值
+     * - 对冲没有发出（名额或预算不够）时只等主请求
+     * - 两份都失败时返回主请求的错误，熔断器和错误分类看到的是真实原因，而不是 firstWithValue 的 NoSuchElementException
+     */
+    private Mono<PoseSugResponse> hedged(PoseUpstreamBalancer.Replica primary,
+                                         Function<PoseUpstreamBalancer.Replica, Mono<PoseSugResponse>> call) {
+        return Mono.defer(() -> {
+            hedgingPolicy.onPrimary();
+            AtomicReference<Throwable> primaryError = new AtomicReference<>();
+            Sinks.Empty<Void> primaryDone = Sinks.empty();
+            Mono<PoseSugResponse> first = attempt(primary, call)
+                    .doOnError(primaryError::set)
+                    .doFinally(signal -> primaryDone.tryEmitEmpty());
+            return Mono.firstWithValue(first, hedge(primary, call, primaryDone.asMono()))
+                    .onErrorMap(e -> primaryError.get() != null ? primaryError.get() : e);
+        });
+    }
+
+    /**
+     * 等到对冲阈值后，在预算和并发名额都允许时向另一个副本发出第二份请求；否则不产生值。
+     * 主请求在阈值之前结束时 delay 被取消，不再发出对冲。
+     */
+    private Mono<PoseSugResponse> hedge(PoseUpstreamBalancer.Replica primary,
+                                        Function<PoseUpstreamBalancer.Replica, Mono<PoseSugResponse>> call,
+                                        Mono<Void> primaryDone) {
+        return Mono.delay(hedgingPolicy.delay())
+                .takeUntilOther(primaryDone)
+                .flatMap(tick -> {
+                    // 先拿并发名额再扣预算：被限流挡下的对冲不应花掉令牌
+                    if (!concurrencyLimiter.tryAcquire()) {
+                        hedgingPolicy.onSkipped();
+                        return Mono.empty();
+                    }
+                    if (!hedgingPolicy.tryHedge()) {
+                        concurrencyLimiter.onIgnored();
+                        return Mono.empty();
+                    }
+                    PoseUpstreamBalancer.Replica secondary = balancer.acquire(primary);
+                    return attempt(secondary, call).doOnNext(response -> hedgingPolicy.onHedgeWon());
+                });
+    }
+
+    private Mono<PoseSugResponse> post(PoseUpstreamBalancer.Replica replica, Flux<DataBuffer> content,
+                                       String filename, String sessionId, String userIntent, String meta) {
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+
+        builder.part("sessionId", sessionId);
+        // asyncPart：编码器边订阅边写出，每个 DataBuffer 写完即释放
+        builder.asyncPart("image", content, DataBuffer.class)
+                .filename(filename)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM);
+
+        if (userIntent != null && !userIntent.isBlank()) {
+            builder.part("userIntent", userIntent);
+        }
+        if (meta != null && !meta.isBlank()) {
+            builder.part("meta", meta);
         }
+
+        return webClient.post()
+                .uri(replica.baseUrl() + "/posesug")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(builder.build()))
+                .retrieve()
+                .bodyToMono(PoseSugResponse.class);
     }
 }
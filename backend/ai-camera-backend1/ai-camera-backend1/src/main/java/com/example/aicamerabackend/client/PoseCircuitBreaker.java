@@ -0,0 +1,137 @@
+package com.example.aicamerabackend.client;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 9001 熔断器。
+ * - CLOSED：按最近 windowSize 次调用统计失败率，样本数够且失败率超阈值就 OPEN
+ * - OPEN：openDuration 内所有调用立刻失败（回退 mock），不再白等超时
+ * - HALF_OPEN：放行少量探测请求，全部成功则 CLOSED，任何一个失败重新 OPEN
+ * - 状态指标：pose.upstream.circuit.state（0=CLOSED，1=OPEN，2=HALF_OPEN）
+ */
+@Component
+public class PoseCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureRateThreshold;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final int halfOpenProbes;
+
+    // 环形窗口：true = 失败
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    public PoseCircuitBreaker(MeterRegistry meterRegistry,
+                              @Value("${ai.pose.circuit.failure-rate-threshold:50}") int failureRateThreshold,
+                              @Value("${ai.pose.circuit.window-size:20}") int windowSize,
+                              @Value("${ai.pose.circuit.minimum-calls:10}") int minimumCalls,
+                              @Value("${ai.pose.circuit.open-duration:5s}") Duration openDuration,
+                              @Value("${ai.pose.circuit.half-open-probes:3}") int halfOpenProbes) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenProbes = halfOpenProbes;
+        Gauge.builder("pose.upstream.circuit.state", this, cb -> cb.state().ordinal())
+                .description("0=CLOSED, 1=OPEN, 2=HALF_OPEN")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return 是否允许本次调用；返回 true 后必须以 onSuccess / onFailure / onIgnored 之一结束
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probesInFlight = 0;
+            probeSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight + probeSuccesses >= halfOpenProbes) {
+                return false;
+            }
+            probesInFlight++;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            probesInFlight--;
+            if (++probeSuccesses >= halfOpenProbes) {
+                close();
+            }
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && windowCount >= minimumCalls
+                && windowFailures * 100 >= failureRateThreshold * windowCount) {
+            open();
+        }
+    }
+
+    /**
+     * 调用被取消（例如被同会话的新帧顶掉），不计成功也不计失败，只归还探测名额。
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && probesInFlight > 0) {
+            probesInFlight--;
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+}
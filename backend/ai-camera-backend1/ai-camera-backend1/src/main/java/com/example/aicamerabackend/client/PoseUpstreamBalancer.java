@@ -0,0 +1,179 @@
+package com.example.aicamerabackend.client;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多个 9001 推理副本之间的客户端负载均衡。
+ * - power-of-two-choices：随机挑两个可用副本，选 (在途数 + 1) × EWMA 延迟 更小的那个
+ * - EWMA 按时间衰减（decay 时间常数），失败按超时时长计入，慢副本自然少分到请求
+ * - 连续失败 eject-after-failures 次的副本被摘除 ejection-time，到期后重新参与选择；
+ *   再次失败则摘除时间翻倍（不超过 max-ejection-time），成功一次即恢复
+ * - 所有副本都被摘除时忽略摘除状态，仍然尝试（由熔断器决定是否快速失败）
+ * - 每个副本的指标：pose.upstream.replica.outstanding / ewma / ejected{replica=url}
+ */
+@Slf4j
+@Component
+public class PoseUpstreamBalancer {
+
+    public final class Replica {
+        private final String baseUrl;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private double ewmaNanos;
+        private long lastUpdate = System.nanoTime();
+        private int consecutiveFailures;
+        private int ejections;
+        private volatile long ejectedUntil;
+
+        private Replica(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        public String baseUrl() {
+            return baseUrl;
+        }
+
+        private boolean ejected(long now) {
+            return now < ejectedUntil;
+        }
+
+        private synchronized double cost() {
+            return (outstanding.get() + 1) * Math.max(ewmaNanos, 1.0);
+        }
+
+        private synchronized void observe(long latencyNanos) {
+            long now = System.nanoTime();
+            double w = Math.exp(-(now - lastUpdate) / (double) decayNanos);
+            ewmaNanos = ewmaNanos * w + latencyNanos * (1 - w);
+            lastUpdate = now;
+        }
+
+        private synchronized double ewmaMillis() {
+            return ewmaNanos / 1_000_000.0;
+        }
+    }
+
+    private final List<Replica> replicas;
+    private final long decayNanos;
+    private final int ejectAfterFailures;
+    private final long ejectionNanos;
+    private final long maxEjectionNanos;
+    private final long failurePenaltyNanos;
+
+    public PoseUpstreamBalancer(MeterRegistry meterRegistry,
+                                @Value("${ai.pose.base-urls:${ai.pose.base-url}}") String baseUrls,
+                                @Value("${ai.pose.balancer.ewma-decay:10s}") Duration decay,
+                                @Value("${ai.pose.balancer.eject-after-failures:3}") int ejectAfterFailures,
+                                @Value("${ai.pose.balancer.ejection-time:10s}") Duration ejectionTime,
+                                @Value("${ai.pose.balancer.max-ejection-time:2m}") Duration maxEjectionTime,
+                                @Value("${ai.pose.timeout:3s}") Duration failurePenalty) {
+        this.decayNanos = decay.toNanos();
+        this.ejectAfterFailures = ejectAfterFailures;
+        this.ejectionNanos = ejectionTime.toNanos();
+        this.maxEjectionNanos = maxEjectionTime.toNanos();
+        this.failurePenaltyNanos = failurePenalty.toNanos();
+        List<Replica> list = new ArrayList<>();
+        Arrays.stream(baseUrls.split(","))
+                .map(String::strip)
+                .filter(url -> !url.isEmpty())
+                .distinct()
+                .forEach(url -> list.add(new Replica(url)));
+        if (list.isEmpty()) {
+            throw new IllegalArgumentException("ai.pose.base-urls is empty");
+        }
+        this.replicas = List.copyOf(list);
+        for (Replica replica : replicas) {
+            Gauge.builder("pose.upstream.replica.outstanding", replica.outstanding, AtomicInteger::get)
+                    .tag("replica", replica.baseUrl).register(meterRegistry);
+            Gauge.builder("pose.upstream.replica.ewma", replica, Replica::ewmaMillis)
+                    .tag("replica", replica.baseUrl).baseUnit("milliseconds").register(meterRegistry);
+            Gauge.builder("pose.upstream.replica.ejected", replica, r -> r.ejected(System.nanoTime()) ? 1 : 0)
+                    .tag("replica", replica.baseUrl).register(meterRegistry);
+        }
+    }
+
+    /**
+     * 选一个副本并计入在途；调用结束后必须 onSuccess / onFailure / onIgnored。
+     *
+     * @param exclude 不希望选到的副本（如对冲请求要换一台），可为 null；没有别的可选时仍可能返回它
+     */
+    public Replica acquire(Replica exclude) {
+        long now = System.nanoTime();
+        List<Replica> candidates = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (replica != exclude && !replica.ejected(now)) {
+                candidates.add(replica);
+            }
+        }
+        if (candidates.isEmpty()) {
+            for (Replica replica : replicas) {
+                if (replica != exclude) {
+                    candidates.add(replica);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            candidates.addAll(replicas);
+        }
+        Replica chosen;
+        if (candidates.size() == 1) {
+            chosen = candidates.get(0);
+        } else {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int i = random.nextInt(candidates.size());
+            int j = random.nextInt(candidates.size() - 1);
+            if (j >= i) {
+                j++;
+            }
+            Replica a = candidates.get(i);
+            Replica b = candidates.get(j);
+            chosen = a.cost() <= b.cost() ? a : b;
+        }
+        chosen.outstanding.incrementAndGet();
+        return chosen;
+    }
+
+    public void onSuccess(Replica replica, long latencyNanos) {
+        replica.outstanding.decrementAndGet();
+        replica.observe(latencyNanos);
+        synchronized (replica) {
+            replica.consecutiveFailures = 0;
+            replica.ejections = 0;
+        }
+    }
+
+    public void onFailure(Replica replica) {
+        replica.outstanding.decrementAndGet();
+        replica.observe(failurePenaltyNanos);
+        synchronized (replica) {
+            if (++replica.consecutiveFailures >= ejectAfterFailures) {
+                long duration = Math.min(maxEjectionNanos, ejectionNanos << Math.min(replica.ejections, 16));
+                replica.ejectedUntil = System.nanoTime() + duration;
+                replica.ejections++;
+                replica.consecutiveFailures = 0;
+                log.atWarn().setMessage("pose upstream replica ejected")
+                        .addKeyValue("replica", replica.baseUrl)
+                        .addKeyValue("ejectionMs", duration / 1_000_000)
+                        .log();
+            }
+        }
+    }
+
+    public void onIgnored(Replica replica) {
+        replica.outstanding.decrementAndGet();
+    }
+
+    public List<Replica> replicas() {
+        return replicas;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.aicamerabackend.client;
+
+/**
+ * 请求没有发到 9001 就被网关拒绝（熔断打开、并发到达上限等），上层直接回退 mock。
+ */
+public class PoseUpstreamRejectedException extends RuntimeException {
+
+    private final String reason;
+
+    public PoseUpstreamRejectedException(String reason) {
+        super("Pose AI call rejected: " + reason);
+        this.reason = reason;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.aicamerabackend.client;
+
+import com.example.aicamerabackend.dto.AiWriteResponse;
+import com.example.aicamerabackend.image.FrameImage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 调用 9001 /ai/write（AI 成文）。与 /posesug 共用连接池，但不走姿势分析的熔断和自适应并发上限：
+ * 成文是一次大模型多图调用，耗时以秒计，会把按 /posesug 延迟调出来的上限拉垮。超时由调用方的截止时间控制。
+ */
+@Component
+public class WriteAiClient {
+
+    private final WebClient webClient;
+    private final String baseUrl;
+
+    public WriteAiClient(WebClient webClient,
+                         @Value("${ai.write.base-url:${ai.pose.base-url:http://localhost:9001}}") String baseUrl) {
+        this.webClient = webClient;
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * 所有图片作为同名 image 字段依次写出；9001 返回 code != 200 时以错误结束。
+     */
+    public Mono<List<String>> write(List<FrameImage> images, String sessionId, String requirement) {
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("sessionId", sessionId);
+        for (FrameImage image : images) {
+            builder.asyncPart("image", image.content(), DataBuffer.class)
+                    .filename(image.filename())
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM);
+        }
+        if (requirement != null && !requirement.isBlank()) {
+            builder.part("requirement", requirement);
+        }
+
+        return webClient.post()
+                .uri(baseUrl + "/ai/write")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(builder.build()))
+                .retrieve()
+                .bodyToMono(AiWriteResponse.class)
+                .flatMap(response -> {
+                    if (response.getCode() != 200 || response.getData() == null || response.getData().getContent() == null) {
+                        return Mono.error(new IllegalStateException(
+                                "AI write failed: code=" + response.getCode() + ", msg=" + response.getMsg()));
+                    }
+                    return Mono.just(response.getData().getContent());
+                });
+    }
+}
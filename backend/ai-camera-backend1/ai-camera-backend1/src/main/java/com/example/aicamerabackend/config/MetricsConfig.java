@@ -0,0 +1,35 @@
+package com.example.aicamerabackend.config;
+
+import com.example.aicamerabackend.service.FrameMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.http.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.codec.cbor.JacksonCborDecoder;
+import org.springframework.http.codec.cbor.JacksonCborEncoder;
+import org.springframework.http.codec.json.JacksonJsonEncoder;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class MetricsConfig {
+
+    /*
+    在 Spring Boot 自带的 Jackson 编码器配置之后执行，换成带计时的编码器（仍使用 Boot 配好的 JsonMapper / CBORMapper）。
+    客户端带 Accept: application/cbor 时 /api/frame/analyze 按 CBOR 返回，其余情况仍是 JSON
+     */
+    @Bean
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public CodecCustomizer timedEncoderCustomizer(JsonMapper jsonMapper, CBORMapper cborMapper, FrameMetrics frameMetrics) {
+        return configurer -> {
+            configurer.defaultCodecs()
+                    .jacksonJsonEncoder(new TimedEncoder(new JacksonJsonEncoder(jsonMapper), frameMetrics));
+            configurer.defaultCodecs()
+                    .jacksonCborEncoder(new TimedEncoder(new JacksonCborEncoder(cborMapper), frameMetrics));
+            configurer.defaultCodecs().jacksonCborDecoder(new JacksonCborDecoder(cborMapper));
+        };
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.aicamerabackend.config;
+
+import com.example.aicamerabackend.dto.PoseSugResponse;
+import com.example.aicamerabackend.service.FrameMetrics;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 包一层编码器（JSON / CBOR），给 PoseSugResponse 的序列化计时（pose.frame.stage{stage=serialize}）。
+ * 单值响应改为逐个 encodeValue，这样只计编码本身，不把等待上游的时间算进来；其余类型原样委托。
+ */
+class TimedEncoder implements HttpMessageEncoder<Object> {
+
+    private final HttpMessageEncoder<Object> delegate;
+    private final FrameMetrics frameMetrics;
+
+    TimedEncoder(HttpMessageEncoder<Object> delegate, FrameMetrics frameMetrics) {
+        this.delegate = delegate;
+        this.frameMetrics = frameMetrics;
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        return delegate.canEncode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        if (inputStream instanceof Mono<?> mono) {
+            return mono.map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints)).flux();
+        }
+        return delegate.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+    }
+
+    @Override
+    public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory,
+                                  ResolvableType valueType, MimeType mimeType, Map<String, Object> hints) {
+        if (value instanceof PoseSugResponse) {
+            return frameMetrics.time("serialize",
+                    () -> delegate.encodeValue(value, bufferFactory, valueType, mimeType, hints));
+        }
+        return delegate.encodeValue(value, bufferFactory, valueType, mimeType, hints);
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return delegate.getEncodableMimeTypes();
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes(ResolvableType elementType) {
+        return delegate.getEncodableMimeTypes(elementType);
+    }
+
+    @Override
+    public List<MediaType> getStreamingMediaTypes() {
+        return delegate.getStreamingMediaTypes();
+    }
+
+    @Override
+    public Map<String, Object> getEncodeHints(ResolvableType actualType, ResolvableType elementType,
+                                              MediaType mediaType, ServerHttpRequest request,
+                                              ServerHttpResponse response) {
+        return delegate.getEncodeHints(actualType, elementType, mediaType, request, response);
+    }
+}
@@ -1,12 +1,60 @@
 package com.example.aicamerabackend.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 @Configuration
 public class WebClientConfig {
 
+    /*
+    9001 姿势上游专用连接池
+    - 连接数 / 排队数 / 拿连接超时：上游慢时快速失败走 mock，而不是默认的 45s 排队
+    - 空闲回收要短于上游（uvicorn 默认 5s）的 keep-alive，避免拿到已被对端关掉的连接
+    - metrics=true：在 Micrometer 里注册 reactor.netty.connection.provider.* 指标
+      （active / idle / pending connections，以及拿连接耗时 pending.connections.time），/actuator/metrics 可查
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider poseConnectionProvider(
+            @Value("${ai.pose.pool.max-connections:500}") int maxConnections,
+            @Value("${ai.pose.pool.max-pending-acquires:2000}") int maxPendingAcquires,
+            @Value("${ai.pose.pool.acquire-timeout:1s}") Duration acquireTimeout,
+            @Value("${ai.pose.pool.max-idle-time:4s}") Duration maxIdleTime,
+            @Value("${ai.pose.pool.max-life-time:5m}") Duration maxLifeTime,
+            @Value("${ai.pose.pool.evict-interval:10s}") Duration evictInterval) {
+        return ConnectionProvider.builder("pose-upstream")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(maxPendingAcquires)
+                .pendingAcquireTimeout(acquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictInterval)
+                .lifo()
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public HttpClient poseHttpClient(
+            ConnectionProvider poseConnectionProvider,
+            @Value("${ai.pose.http.connect-timeout:1s}") Duration connectTimeout,
+            @Value("${ai.pose.http.tcp-keep-alive:true}") boolean tcpKeepAlive,
+            @Value("${ai.pose.http.h2c:false}") boolean h2c) {
+        return HttpClient.create(poseConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, tcpKeepAlive)
+                .option(ChannelOption.TCP_NODELAY, true)
+                // h2c 需要上游支持明文 HTTP/2（如 hypercorn）；开启后多个请求复用同一条连接
+                .protocol(h2c ? HttpProtocol.H2C : HttpProtocol.HTTP11);
+    }
 
     @Bean
     public WebClient.Builder webClientBuilder() {
@@ -14,8 +62,8 @@ public class WebClientConfig {
     }
 
     @Bean
-    public WebClient webClient(WebClient.Builder builder) {
-        return builder.build();
+    public WebClient webClient(WebClient.Builder builder, HttpClient poseHttpClient) {
+        return builder.clientConnector(new ReactorClientHttpConnector(poseHttpClient)).build();
     }
 
 }
@@ -0,0 +1,40 @@
+package com.example.aicamerabackend.config;
+
+import com.example.aicamerabackend.controller.FrameWebSocketHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
+import org.springframework.web.reactive.socket.server.support.HandshakeWebSocketService;
+import org.springframework.web.reactive.socket.server.support.WebSocketHandlerAdapter;
+import org.springframework.web.reactive.socket.server.upgrade.ReactorNettyRequestUpgradeStrategy;
+import reactor.netty.http.server.WebsocketServerSpec;
+
+import java.util.Map;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class WebSocketConfig {
+
+    /*
+    /ws/frames：每个相机会话一条帧通道，见 FrameWebSocketHandler
+     */
+    @Bean
+    public HandlerMapping frameChannelMapping(FrameWebSocketHandler frameWebSocketHandler) {
+        return new SimpleUrlHandlerMapping(Map.of("/ws/frames", frameWebSocketHandler), -1);
+    }
+
+    /*
+    Reactor Netty 默认单个 WebSocket 帧最大 64KB，一帧 JPEG 放不下，放宽到 ai.pose.channel.max-frame-size
+     */
+    @Bean
+    public WebSocketHandlerAdapter webSocketHandlerAdapter(
+            @Value("${ai.pose.channel.max-frame-size:8MB}") DataSize maxFrameSize) {
+        ReactorNettyRequestUpgradeStrategy upgradeStrategy = new ReactorNettyRequestUpgradeStrategy(
+                () -> WebsocketServerSpec.builder().maxFramePayloadLength((int) maxFrameSize.toBytes()));
+        return new WebSocketHandlerAdapter(new HandshakeWebSocketService(upgradeStrategy));
+    }
+}
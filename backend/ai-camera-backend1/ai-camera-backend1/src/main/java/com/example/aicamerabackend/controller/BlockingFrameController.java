@@ -0,0 +1,44 @@
+package com.example.aicamerabackend.controller;
+
+import com.example.aicamerabackend.dto.PoseSugResponse;
+import com.example.aicamerabackend.service.GuidanceService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+/*
+帧分析接口（servlet 模式，spring profile: virtual-threads）
+输入输出与 FrameController 一致；每个请求跑在 Tomcat 分配的虚拟线程上，直接阻塞等待 9001
+ */
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class BlockingFrameController {
+
+    private final GuidanceService guidanceService;
+    @PostMapping(value = "/api/frame/analyze", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public PoseSugResponse analyzeFrame(
+            @RequestParam("sessionId") String sessionId,
+            @RequestParam("image") MultipartFile image,
+            @RequestParam(value = "userIntent", required = false) String userIntent,
+            @RequestParam(value = "meta", required = false) String meta
+    ) {
+        if (image == null || image.isEmpty()) {
+            throw new IllegalArgumentException("image is required");
+        }
+
+        log.atInfo().setMessage("frame received")
+                .addKeyValue("sessionId", sessionId)
+                .addKeyValue("filename", image.getOriginalFilename())
+                .addKeyValue("size", image.getSize())
+                .addKeyValue("userIntent", userIntent)
+                .addKeyValue("meta", meta)
+                .log();
+
+        return guidanceService.analyzeFrameBlocking(image, sessionId, userIntent, meta);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.aicamerabackend.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/*
+记下 /api/frame/analyze 请求到达网关的时刻（System.nanoTime，请求头刚解析完、请求体还没读）
+排在所有过滤器之前；pose.frame.stage{stage=receive} 从这里算到图片最后一个分块收完，即上传 + multipart 解析的耗时
+（控制器方法被调用时 multipart 往往已经读完，从那里开始计时只剩几乎为 0 的尾巴）
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class FrameArrivalFilter implements WebFilter {
+
+    private static final String FRAME_PATH = "/api/frame/analyze";
+    private static final String ARRIVAL_ATTRIBUTE = FrameArrivalFilter.class.getName() + ".arrivalNanos";
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (request.getMethod() == HttpMethod.POST && FRAME_PATH.equals(request.getPath().value())) {
+            exchange.getAttributes().put(ARRIVAL_ATTRIBUTE, System.nanoTime());
+        }
+        return chain.filter(exchange);
+    }
+
+    /**
+     * 请求到达的时刻；没经过本过滤器时（如测试里直接调用控制器）退回当前时刻。
+     */
+    static long arrivalNanos(ServerWebExchange exchange) {
+        Long arrival = exchange.getAttribute(ARRIVAL_ATTRIBUTE);
+        return arrival != null ? arrival : System.nanoTime();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.aicamerabackend.controller;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+WebSocket 帧通道里客户端发来的一帧（二进制消息），大端序：
+  version   1 字节，当前为 1
+  seq       4 字节，客户端自增的帧序号，结果里原样带回
+  intentLen 2 字节，userIntent 的 UTF-8 字节数（0 表示没有）
+  metaLen   2 字节，meta JSON 的 UTF-8 字节数（0 表示没有）
+  intent / meta
+  其余全部是 JPEG
+解析后 payload 的读指针停在 JPEG 开头，JPEG 不拷贝。
+ */
+record FrameChannelFrame(long seq, String userIntent, String meta, DataBuffer jpeg) {
+
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 9;
+
+    static FrameChannelFrame parse(DataBuffer payload) {
+        if (payload.readableByteCount() < HEADER_SIZE) {
+            throw new IllegalArgumentException("frame shorter than header");
+        }
+        int version = payload.read() & 0xFF;
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported frame version " + version);
+        }
+        long seq = readInt(payload) & 0xFFFFFFFFL;
+        int intentLength = readShort(payload);
+        int metaLength = readShort(payload);
+        if (payload.readableByteCount() < intentLength + metaLength) {
+            throw new IllegalArgumentException("frame header lengths exceed payload");
+        }
+        String intent = readString(payload, intentLength);
+        String meta = readString(payload, metaLength);
+        return new FrameChannelFrame(seq, intent, meta, payload);
+    }
+
+    /**
+     * 只读出 seq，不移动读指针（被限流丢弃的帧不做完整解析）；不足一个头部时返回 -1。
+     */
+    static long peekSeq(DataBuffer payload) {
+        if (payload.readableByteCount() < HEADER_SIZE) {
+            return -1;
+        }
+        int offset = payload.readPosition() + 1;
+        long seq = 0;
+        for (int i = 0; i < 4; i++) {
+            seq = seq << 8 | (payload.getByte(offset + i) & 0xFF);
+        }
+        return seq;
+    }
+
+    private static int readInt(DataBuffer buffer) {
+        return (buffer.read() & 0xFF) << 24 | (buffer.read() & 0xFF) << 16
+                | (buffer.read() & 0xFF) << 8 | (buffer.read() & 0xFF);
+    }
+
+    private static int readShort(DataBuffer buffer) {
+        return (buffer.read() & 0xFF) << 8 | (buffer.read() & 0xFF);
+    }
+
+    private static String readString(DataBuffer buffer, int length) {
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.read(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,39 +1,92 @@
 package com.example.aicamerabackend.controller;
 
 import com.example.aicamerabackend.dto.PoseSugResponse;
+import com.example.aicamerabackend.service.FrameAnalysis;
+import com.example.aicamerabackend.service.FrameShedException;
+import com.example.aicamerabackend.service.FrameSupersededException;
 import com.example.aicamerabackend.service.GuidanceService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /*
-帧分析接口
+帧分析接口（WebFlux / Reactor Netty）
 输入：sessionId（当前会话）, image（图片文件）, meta（可选，元数据）
-输出：FrameAnalyzeResponse（分析结果）
+输出：Mono<PoseSugResponse>（分析结果），等待 9001 期间不占用任何线程；回退 mock 时带 X-Pose-Degraded: 原因
+Accept: text/event-stream 时改为 SSE：先发 ack，拿到完整结果后拆成逐字段事件一次发出，事件见 PoseGuidanceEvents
  */
+@Slf4j
 @RestController
 @RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
 public class FrameController {
 
+    private static final String DEGRADED_HEADER = "X-Pose-Degraded";
+
     private final GuidanceService guidanceService;
     @PostMapping(value = "/api/frame/analyze", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public PoseSugResponse analyzeFrame(
-            @RequestParam("sessionId") String sessionId,
-            @RequestParam("image") MultipartFile image,
-            @RequestParam(value = "userIntent", required = false) String userIntent,
-            @RequestParam(value = "meta", required = false) String meta
+    public Mono<PoseSugResponse> analyzeFrame(
+            @RequestPart("sessionId") String sessionId,
+            @RequestPart("image") FilePart image,
+            @RequestPart(value = "userIntent", required = false) String userIntent,
+            @RequestPart(value = "meta", required = false) String meta,
+            ServerWebExchange exchange
     ) {
-        if (image == null || image.isEmpty()) {
+        if (image == null) {
             throw new IllegalArgumentException("image is required");
         }
 
-        System.out.println("sessionId=" + sessionId
-                + ", filename=" + image.getOriginalFilename()
-                + ", size=" + image.getSize()
-                + ", userIntent=" + userIntent
-                + ", meta=" + meta);
+        log.atInfo().setMessage("frame received")
+                .addKeyValue("sessionId", sessionId)
+                .addKeyValue("filename", image.filename())
+                .addKeyValue("size", image.headers().getContentLength())
+                .addKeyValue("userIntent", userIntent)
+                .addKeyValue("meta", meta)
+                .log();
+
+        return guidanceService.analyzeFrame(image, sessionId, userIntent, meta, FrameArrivalFilter.arrivalNanos(exchange))
+                .doOnNext(analysis -> {
+                    if (analysis.degraded()) {
+                        exchange.getResponse().getHeaders().set(DEGRADED_HEADER, analysis.degradedCause());
+                    }
+                })
+                .map(FrameAnalysis::response);
+    }
+
+    /**
+     * SSE 版本：先回 ack，完整结果到达后按 guideText → voiceAudioText → 各条姿势 → poseImageUrl 的顺序推送。
+     * 只是把完整响应重新分帧，各字段事件几乎同时到达，不会比 JSON 版本更早拿到首个字段；
+     * 提前到达的只有 ack（确认帧已收到），见 PoseGuidanceEvents。
+     */
+    @PostMapping(value = "/api/frame/analyze",
+            consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> analyzeFrameStream(
+            @RequestPart("sessionId") String sessionId,
+            @RequestPart("image") FilePart image,
+            @RequestPart(value = "userIntent", required = false) String userIntent,
+            @RequestPart(value = "meta", required = false) String meta,
+            ServerWebExchange exchange
+    ) {
+        log.atInfo().setMessage("frame received")
+                .addKeyValue("sessionId", sessionId)
+                .addKeyValue("filename", image.filename())
+                .addKeyValue("userIntent", userIntent)
+                .addKeyValue("stream", true)
+                .log();
 
-        return guidanceService.analyzeFrame(image, sessionId, userIntent, meta);
+        Flux<ServerSentEvent<Object>> result = guidanceService.analyzeFrame(
+                        image, sessionId, userIntent, meta, FrameArrivalFilter.arrivalNanos(exchange))
+                .flatMapMany(PoseGuidanceEvents::of)
+                .onErrorResume(FrameSupersededException.class, e -> Flux.just(PoseGuidanceEvents.superseded()))
+                .onErrorResume(FrameShedException.class, e -> Flux.just(PoseGuidanceEvents.overloaded()));
+        return Flux.concat(Flux.just(PoseGuidanceEvents.ack(sessionId)), result);
     }
 }
@@ -0,0 +1,86 @@
+package com.example.aicamerabackend.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+帧入口的限流，令牌桶见 FrameRateLimiter
+- POST /api/frame/analyze：在读 multipart 之前判断，按客户端 IP 和 sessionId 各扣一次，超限直接回 429 + Retry-After（秒），请求体不解析
+- GET /ws/frames：握手时只扣 IP 桶，超限回 429、不升级；通道建立后每个上行帧由 FrameWebSocketHandler 扣会话桶
+sessionId 取 X-Session-Id 头或 ?sessionId= 查询参数（都没有时只按 IP 限）；IP 取连接对端地址
+ */
+@Slf4j
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class FrameRateLimitFilter implements WebFilter {
+
+    private static final String SESSION_HEADER = "X-Session-Id";
+    private static final String FRAME_PATH = "/api/frame/analyze";
+    private static final String CHANNEL_PATH = "/ws/frames";
+
+    private final FrameRateLimiter rateLimiter;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!rateLimiter.enabled()) {
+            return chain.filter(exchange);
+        }
+        String path = request.getPath().value();
+        boolean frame = request.getMethod() == HttpMethod.POST && FRAME_PATH.equals(path);
+        boolean channel = request.getMethod() == HttpMethod.GET && CHANNEL_PATH.equals(path);
+        if (!frame && !channel) {
+            return chain.filter(exchange);
+        }
+
+        long waitNanos = rateLimiter.acquireClient(request.getRemoteAddress());
+        if (waitNanos > 0) {
+            return tooManyRequests(exchange, waitNanos, "client",
+                    FrameRateLimiter.clientKey(request.getRemoteAddress()));
+        }
+
+        String sessionId = sessionKey(request);
+        if (frame && sessionId != null) {
+            waitNanos = rateLimiter.acquireSession(sessionId);
+            if (waitNanos > 0) {
+                return tooManyRequests(exchange, waitNanos, "session", sessionId);
+            }
+        }
+        return chain.filter(exchange);
+    }
+
+    private static Mono<Void> tooManyRequests(ServerWebExchange exchange, long waitNanos, String key, String value) {
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        log.atDebug().setMessage("frame rate limited")
+                .addKeyValue("key", key)
+                .addKeyValue("value", value)
+                .addKeyValue("retryAfterSeconds", retryAfterSeconds)
+                .log();
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        return response.setComplete();
+    }
+
+    private static String sessionKey(ServerHttpRequest request) {
+        String sessionId = request.getHeaders().getFirst(SESSION_HEADER);
+        if (sessionId == null || sessionId.isBlank()) {
+            sessionId = request.getQueryParams().getFirst("sessionId");
+        }
+        return sessionId == null || sessionId.isBlank() ? null : sessionId;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.aicamerabackend.controller;
+
+import com.example.aicamerabackend.service.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetSocketAddress;
+
+/*
+帧入口共用的令牌桶：按 sessionId 和客户端 IP 各一个
+- POST /api/frame/analyze：FrameRateLimitFilter 每个请求各扣一次 IP 桶和会话桶
+- /ws/frames：握手时由 FrameRateLimitFilter 扣 IP 桶，之后每个上行二进制帧由 FrameWebSocketHandler 扣会话桶
+两个入口共用同一组桶，同一会话换通道不会多出一份额度
+指标：pose.ratelimit.rejected{key=session|client}
+ */
+@Component
+public class FrameRateLimiter {
+
+    private final boolean enabled;
+    private final TokenBucketRateLimiter sessionLimiter;
+    private final TokenBucketRateLimiter clientLimiter;
+    private final Counter rejectedBySession;
+    private final Counter rejectedByClient;
+
+    public FrameRateLimiter(MeterRegistry meterRegistry,
+                            @Value("${ai.pose.rate-limit.enabled:true}") boolean enabled,
+                            @Value("${ai.pose.rate-limit.session.rate:10}") double sessionRate,
+                            @Value("${ai.pose.rate-limit.session.burst:20}") int sessionBurst,
+                            @Value("${ai.pose.rate-limit.client.rate:50}") double clientRate,
+                            @Value("${ai.pose.rate-limit.client.burst:100}") int clientBurst,
+                            @Value("${ai.pose.rate-limit.max-keys:100000}") long maxKeys) {
+        this.enabled = enabled;
+        this.sessionLimiter = new TokenBucketRateLimiter(sessionRate, sessionBurst, maxKeys);
+        this.clientLimiter = new TokenBucketRateLimiter(clientRate, clientBurst, maxKeys);
+        this.rejectedBySession = rejected(meterRegistry, "session");
+        this.rejectedByClient = rejected(meterRegistry, "client");
+    }
+
+    private static Counter rejected(MeterRegistry meterRegistry, String key) {
+        return Counter.builder("pose.ratelimit.rejected")
+                .tag("key", key)
+                .register(meterRegistry);
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * 扣客户端 IP 桶一个令牌。返回 0 表示放行，大于 0 表示被拒绝，值为还需等待的纳秒数。
+     */
+    public long acquireClient(InetSocketAddress remote) {
+        if (!enabled) {
+            return 0;
+        }
+        long waitNanos = clientLimiter.tryAcquire(clientKey(remote));
+        if (waitNanos > 0) {
+            rejectedByClient.increment();
+        }
+        return waitNanos;
+    }
+
+    /**
+     * 扣会话桶一个令牌，返回值含义同 acquireClient。
+     */
+    public long acquireSession(String sessionId) {
+        if (!enabled) {
+            return 0;
+        }
+        long waitNanos = sessionLimiter.tryAcquire(sessionId);
+        if (waitNanos > 0) {
+            rejectedBySession.increment();
+        }
+        return waitNanos;
+    }
+
+    static String clientKey(InetSocketAddress remote) {
+        if (remote == null) {
+            return "unknown";
+        }
+        return remote.getAddress() != null ? remote.getAddress().getHostAddress() : remote.getHostString();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.aicamerabackend.controller;
+
+import com.example.aicamerabackend.image.FrameImage;
+import com.example.aicamerabackend.service.FrameAnalysis;
+import com.example.aicamerabackend.service.FrameShedException;
+import com.example.aicamerabackend.service.GuidanceService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/*
+每个相机会话一条 WebSocket：ws://host/ws/frames?sessionId=...（不带时网关生成一个，在 hello 里返回）
+- 上行：二进制帧，格式见 FrameChannelFrame
+- 下行：文本 JSON
+    {"type":"hello","sessionId":...}
+    {"type":"result","seq":N,"result":PoseSugResponse}             回退 mock 时另带 "degraded":原因
+    {"type":"error","message":...}   帧格式错误，该帧被丢弃，通道保持
+    {"type":"error","seq":N,"message":...}   上游过载被丢弃（ai.pose.shed.response=unavailable），通道保持
+    {"type":"error","seq":N,"message":"rate-limited"}   超出会话速率被丢弃，通道保持
+- 流控：同一通道同时只分析一帧；分析期间到达的帧只保留最新的一帧，更旧的直接丢弃（pose.channel.frames{outcome=dropped}）
+- 限流：握手时由 FrameRateLimitFilter 按 IP 限（超限 429，不升级）；每个上行帧扣一次会话令牌（FrameRateLimiter），
+  超限的帧不解析直接丢弃，回一条带 seq 的 rate-limited 错误，客户端据此释放在途名额（pose.ratelimit.rejected{key=session}）；
+  客户端不读时这类错误最多积压 Queues.SMALL_BUFFER_SIZE 条，更多的不再回
+ */
+@Slf4j
+@Component
+public class FrameWebSocketHandler implements WebSocketHandler {
+
+    private final GuidanceService guidanceService;
+    private final JsonMapper jsonMapper;
+    private final FrameRateLimiter rateLimiter;
+    private final Counter analyzed;
+    private final Counter dropped;
+
+    public FrameWebSocketHandler(GuidanceService guidanceService, JsonMapper jsonMapper, FrameRateLimiter rateLimiter,
+                                 MeterRegistry meterRegistry) {
+        this.guidanceService = guidanceService;
+        this.jsonMapper = jsonMapper;
+        this.rateLimiter = rateLimiter;
+        this.analyzed = Counter.builder("pose.channel.frames").tag("outcome", "analyzed").register(meterRegistry);
+        this.dropped = Counter.builder("pose.channel.frames").tag("outcome", "dropped").register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> handle(WebSocketSession session) {
+        String requested = UriComponentsBuilder.fromUri(session.getHandshakeInfo().getUri())
+                .build().getQueryParams().getFirst("sessionId");
+        String sessionId = requested == null || requested.isBlank() ? UUID.randomUUID().toString() : requested;
+        log.atInfo().setMessage("frame channel opened").addKeyValue("sessionId", sessionId).log();
+
+        Sinks.Many<String> rejections = Sinks.many().unicast().onBackpressureBuffer(Queues.<String>small().get());
+        Flux<String> results = session.receive()
+                .filter(message -> message.getType() == WebSocketMessage.Type.BINARY)
+                // 超出会话速率的帧在 retain 之前丢掉，由 Reactor Netty 照常释放
+                .filter(message -> admit(message, sessionId, rejections))
+                // Reactor Netty 在 onNext 返回后就会释放入站帧，异步处理前先 retain
+                .map(WebSocketMessage::retain)
+                .onBackpressureLatest()
+                .flatMap(message -> analyze(message, sessionId), 1, 1)
+                .doOnDiscard(WebSocketMessage.class, message -> {
+                    dropped.increment();
+                    message.release();
+                })
+                // 入站结束后不会再有新的拒绝
+                .doFinally(signal -> rejections.tryEmitComplete());
+
+        Flux<String> outgoing = Flux.concat(Mono.fromSupplier(() -> json(message("hello", "sessionId", sessionId))),
+                Flux.merge(results, rejections.asFlux()));
+        return session.send(outgoing.map(session::textMessage))
+                .doFinally(signal -> log.atInfo().setMessage("frame channel closed")
+                        .addKeyValue("sessionId", sessionId)
+                        .addKeyValue("signal", signal)
+                        .log());
+    }
+
+    private boolean admit(WebSocketMessage message, String sessionId, Sinks.Many<String> rejections) {
+        if (rateLimiter.acquireSession(sessionId) == 0) {
+            return true;
+        }
+        Map<String, Object> error = message("error", "seq", FrameChannelFrame.peekSeq(message.getPayload()));
+        error.put("message", "rate-limited");
+        rejections.tryEmitNext(json(error));
+        return false;
+    }
+
+    private Mono<String> analyze(WebSocketMessage message, String sessionId) {
+        FrameChannelFrame frame;
+        try {
+            frame = FrameChannelFrame.parse(message.getPayload());
+        } catch (IllegalArgumentException e) {
+            message.release();
+            return Mono.just(json(message("error", "message", e.getMessage())));
+        }
+        analyzed.increment();
+        // FrameImage 接管 payload，release 时一并释放
+        return Mono.usingWhen(
+                FrameImage.receive(Flux.just(frame.jpeg()), "frame-" + frame.seq() + ".jpg"),
+                image -> guidanceService.analyzeFrame(image, sessionId, frame.userIntent(), frame.meta()),
+                image -> Mono.fromRunnable(image::release))
+                .map(analysis -> result(frame.seq(), analysis))
+                .onErrorResume(FrameShedException.class, e -> Mono.just(shed(frame.seq(), e)))
+                .doOnDiscard(FrameChannelFrame.class, f -> DataBufferUtils.release(f.jpeg()));
+    }
+
+    private String result(long seq, FrameAnalysis analysis) {
+        Map<String, Object> message = message("result", "seq", seq);
+        message.put("result", analysis.response());
+        if (analysis.degraded()) {
+            message.put("degraded", analysis.degradedCause());
+        }
+        return json(message);
+    }
+
+    private String shed(long seq, FrameShedException e) {
+        Map<String, Object> message = message("error", "seq", seq);
+        message.put("message", e.getReason());
+        return json(message);
+    }
+
+    private static Map<String, Object> message(String type, String key, Object value) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", type);
+        message.put(key, value);
+        return message;
+    }
+
+    private String json(Map<String, Object> message) {
+        return jsonMapper.writeValueAsString(message);
+    }
+}
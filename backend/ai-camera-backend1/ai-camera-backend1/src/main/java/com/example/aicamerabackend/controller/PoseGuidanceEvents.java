@@ -0,0 +1,80 @@
+package com.example.aicamerabackend.controller;
+
+import com.example.aicamerabackend.dto.PoseSugResponse;
+import com.example.aicamerabackend.dto.PoseSuggestion;
+import com.example.aicamerabackend.service.FrameAnalysis;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+/api/frame/analyze 的 SSE 事件（Accept: text/event-stream）
+顺序：ack → [degraded] → guideText → voiceAudioText → poseSuggestion（每条一个）→ poseImageUrl → done
+注意：这里只是把一个完整的 PoseSugResponse 拆成多个事件。9001 /posesug 生成完整结果后一次性返回，
+网关拿到完整响应后才开始发 ack 之后的事件，它们几乎同时到达客户端；真正提前到达的只有 ack。
+首个字段的等待时间等于完整响应的等待时间，要缩短它得先让 9001 流式输出，再在这里逐字段解析转发。
+- ack：{"sessionId": ...}，收到图片后立即发出
+- degraded：回退了 mock，数据为原因（overload、timeout 等）；响应头已发出，只能用事件标记
+- guideText / voiceAudioText / poseImageUrl：纯文本；字段为空时不发
+- poseSuggestion：PoseSuggestion 的 JSON
+- superseded：同会话来了更新的帧，本次分析被取消，随后结束
+- overloaded：上游过载被丢弃（ai.pose.shed.response=unavailable），随后结束
+ */
+final class PoseGuidanceEvents {
+
+    static final String ACK = "ack";
+    static final String GUIDE_TEXT = "guideText";
+    static final String VOICE_AUDIO_TEXT = "voiceAudioText";
+    static final String POSE_SUGGESTION = "poseSuggestion";
+    static final String POSE_IMAGE_URL = "poseImageUrl";
+    static final String DEGRADED = "degraded";
+    static final String SUPERSEDED = "superseded";
+    static final String OVERLOADED = "overloaded";
+    static final String DONE = "done";
+
+    private PoseGuidanceEvents() {
+    }
+
+    static ServerSentEvent<Object> ack(String sessionId) {
+        return event(ACK, Map.of("sessionId", sessionId));
+    }
+
+    static ServerSentEvent<Object> superseded() {
+        return event(SUPERSEDED, "");
+    }
+
+    static ServerSentEvent<Object> overloaded() {
+        return event(OVERLOADED, "");
+    }
+
+    static Flux<ServerSentEvent<Object>> of(FrameAnalysis analysis) {
+        PoseSugResponse response = analysis.response();
+        List<ServerSentEvent<Object>> events = new ArrayList<>();
+        if (analysis.degraded()) {
+            events.add(event(DEGRADED, analysis.degradedCause()));
+        }
+        addText(events, GUIDE_TEXT, response.getGuideText());
+        addText(events, VOICE_AUDIO_TEXT, response.getVoiceAudioText());
+        if (response.getPoseSuggestions() != null) {
+            for (PoseSuggestion suggestion : response.getPoseSuggestions()) {
+                events.add(event(POSE_SUGGESTION, suggestion));
+            }
+        }
+        addText(events, POSE_IMAGE_URL, response.getPoseImageUrl());
+        events.add(event(DONE, ""));
+        return Flux.fromIterable(events);
+    }
+
+    private static void addText(List<ServerSentEvent<Object>> events, String name, String text) {
+        if (text != null && !text.isBlank()) {
+            events.add(event(name, text));
+        }
+    }
+
+    private static ServerSentEvent<Object> event(String name, Object data) {
+        return ServerSentEvent.builder(data).event(name).build();
+    }
+}
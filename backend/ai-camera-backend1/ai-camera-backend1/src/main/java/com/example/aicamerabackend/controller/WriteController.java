@@ -0,0 +1,98 @@
+package com.example.aicamerabackend.controller;
+
+import com.example.aicamerabackend.dto.AiWriteResponse;
+import com.example.aicamerabackend.service.WriteService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Comparator;
+import java.util.Map;
+
+/*
+AI 成文接口 /ai/write（与 9001 的 /ai/write 入参、响应格式一致，见 api/API_V2.0.1.md）
+输入：sessionId, image（可多张，同名字段）, requirement（可选，JSON 字符串）
+输出：{"code","msg","data":{"content":[...]}}；HTTP 状态恒为 200，结果看 code：
+  200 success / 200 partial（截止时间到，只拿到部分文案）/ 400 参数错误 / 502 9001 失败 / 504 截止时间内一条都没拿到
+Accept: text/event-stream 时改为 SSE，每条文案一到就推送：
+  ack {"sessionId"} → candidate {"index","content"}（到达顺序，index 为备选序号）→ done {"count"}；失败时为 error {"code","msg"}
+ */
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class WriteController {
+
+    private final WriteService writeService;
+
+    @PostMapping(value = "/ai/write", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Mono<AiWriteResponse> write(
+            @RequestPart("sessionId") String sessionId,
+            @RequestPart("image") Flux<FilePart> images,
+            @RequestPart(value = "requirement", required = false) String requirement
+    ) {
+        log.atInfo().setMessage("ai write received")
+                .addKeyValue("sessionId", sessionId)
+                .addKeyValue("requirement", requirement)
+                .log();
+
+        return writeService.write(images, sessionId, requirement)
+                .sort(Comparator.comparingInt(WriteService.Candidate::index))
+                .map(WriteService.Candidate::content)
+                .collectList()
+                .map(content -> {
+                    if (content.isEmpty()) {
+                        return AiWriteResponse.error(504, "no caption generated before the deadline");
+                    }
+                    return AiWriteResponse.success(content.size() < writeService.candidates() ? "partial" : "success", content);
+                })
+                .onErrorResume(e -> Mono.just(errorResponse(sessionId, e)));
+    }
+
+    @PostMapping(value = "/ai/write",
+            consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> writeStream(
+            @RequestPart("sessionId") String sessionId,
+            @RequestPart("image") Flux<FilePart> images,
+            @RequestPart(value = "requirement", required = false) String requirement
+    ) {
+        log.atInfo().setMessage("ai write received")
+                .addKeyValue("sessionId", sessionId)
+                .addKeyValue("requirement", requirement)
+                .addKeyValue("stream", true)
+                .log();
+
+        int[] count = {0};
+        Flux<ServerSentEvent<Object>> candidates = writeService.write(images, sessionId, requirement)
+                .doOnNext(candidate -> count[0]++)
+                .map(candidate -> event("candidate", Map.of("index", candidate.index(), "content", candidate.content())));
+        Flux<ServerSentEvent<Object>> done = Flux.defer(() -> Flux.just(event("done", Map.of("count", count[0]))));
+        return Flux.concat(Flux.just(event("ack", Map.of("sessionId", sessionId))), candidates, done)
+                .onErrorResume(e -> {
+                    AiWriteResponse error = errorResponse(sessionId, e);
+                    return Flux.just(event("error", Map.of("code", error.getCode(), "msg", error.getMsg())));
+                });
+    }
+
+    private static AiWriteResponse errorResponse(String sessionId, Throwable e) {
+        if (e instanceof IllegalArgumentException) {
+            return AiWriteResponse.error(400, "参数错误：" + e.getMessage());
+        }
+        log.atWarn().setMessage("ai write failed")
+                .addKeyValue("sessionId", sessionId)
+                .addKeyValue("reason", e.getMessage())
+                .log();
+        return AiWriteResponse.error(502, "AI write failed: " + e.getMessage());
+    }
+
+    private static ServerSentEvent<Object> event(String name, Object data) {
+        return ServerSentEvent.builder(data).event(name).build();
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.aicamerabackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/*
+/ai/write 的响应，与 9001 的通用响应格式一致：{"code":200,"msg":"success","data":{"content":[...]}}
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AiWriteResponse {
+    private int code;
+    private String msg;
+    private Content data;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Content {
+        // 备选文案，通常 3 条，支持内部换行
+        private List<String> content;
+    }
+
+    public static AiWriteResponse success(String msg, List<String> content) {
+        return new AiWriteResponse(200, msg, new Content(content));
+    }
+
+    public static AiWriteResponse error(int code, String msg) {
+        return new AiWriteResponse(code, msg, new Content(List.of()));
+    }
+}
@@ -14,4 +14,9 @@ public class PoseSugResponse {
     private String guideText;
     private String voiceAudioText;
     private List<PoseSuggestion> poseSuggestions;
+
+    // 复用别的请求/会话的结果时，换成当前请求的 sessionId
+    public PoseSugResponse withSessionId(String sessionId) {
+        return new PoseSugResponse(sessionId, poseImageUrl, guideText, voiceAudioText, poseSuggestions);
+    }
 }
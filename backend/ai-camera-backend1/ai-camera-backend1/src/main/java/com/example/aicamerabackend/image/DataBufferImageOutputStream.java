@@ -0,0 +1,81 @@
+package com.example.aicamerabackend.image;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import javax.imageio.stream.ImageOutputStreamImpl;
+import java.io.IOException;
+
+/**
+ * 直接写进 DataBuffer（池化的 direct buffer）的 ImageOutputStream，给 JPEG 编码用。
+ * 代替 ImageIO.createImageOutputStream(ByteArrayOutputStream)：后者默认先写临时文件缓存，最后还要 toByteArray 再拷一份。
+ * 支持 seek 回去覆盖已写内容；buffer 的 writePosition 始终是已写出的最大位置。
+ */
+final class DataBufferImageOutputStream extends ImageOutputStreamImpl {
+
+    private final DataBuffer buffer;
+
+    DataBufferImageOutputStream(DataBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        flushBits();
+        int end = seekForWrite();
+        buffer.write((byte) b);
+        restoreEnd(end);
+        streamPos++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        flushBits();
+        int end = seekForWrite();
+        buffer.write(b, off, len);
+        restoreEnd(end);
+        streamPos += len;
+    }
+
+    // 追加写（绝大多数情况）时什么都不用做；seek 回去覆盖时临时把 writePosition 挪到 streamPos
+    private int seekForWrite() {
+        int end = buffer.writePosition();
+        if (streamPos != end) {
+            buffer.writePosition((int) streamPos);
+        }
+        return end;
+    }
+
+    private void restoreEnd(int end) {
+        if (buffer.writePosition() < end) {
+            buffer.writePosition(end);
+        }
+    }
+
+    @Override
+    public int read() {
+        if (streamPos >= buffer.writePosition()) {
+            return -1;
+        }
+        bitOffset = 0;
+        return buffer.getByte((int) streamPos++) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        int available = (int) (buffer.writePosition() - streamPos);
+        if (available <= 0) {
+            return len == 0 ? 0 : -1;
+        }
+        bitOffset = 0;
+        int n = Math.min(len, available);
+        for (int i = 0; i < n; i++) {
+            b[off + i] = buffer.getByte((int) streamPos++);
+        }
+        return n;
+    }
+
+    @Override
+    public long length() {
+        return buffer.writePosition();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.aicamerabackend.image;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 只解析 JPEG APP1/Exif 里 IFD0 的 Orientation（0x0112）标签，不引入完整的 EXIF 库。
+ */
+public final class ExifOrientation {
+
+    public static final int NORMAL = 1;
+
+    private static final int TAG_ORIENTATION = 0x0112;
+
+    private ExifOrientation() {
+    }
+
+    /**
+     * @return 1~8；不是 JPEG、没有 EXIF 或解析失败时返回 {@link #NORMAL}
+     */
+    public static int read(InputStream in) {
+        try {
+            DataInputStream data = new DataInputStream(in);
+            if (data.readUnsignedShort() != 0xFFD8) {
+                return NORMAL;
+            }
+            while (true) {
+                int marker = data.readUnsignedShort();
+                if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA || marker == 0xFFD9) {
+                    // 已到图像数据（SOS）或结束，前面没有 EXIF
+                    return NORMAL;
+                }
+                int length = data.readUnsignedShort() - 2;
+                if (length < 0) {
+                    return NORMAL;
+                }
+                if (marker != 0xFFE1) {
+                    data.skipNBytes(length);
+                    continue;
+                }
+                byte[] segment = new byte[length];
+                data.readFully(segment);
+                int orientation = parseApp1(segment);
+                if (orientation != 0) {
+                    return orientation;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            return NORMAL;
+        }
+    }
+
+    /**
+     * 图片是否带 APP1（EXIF/XMP）段：带了就需要重新编码把它去掉。
+     */
+    public static boolean hasApp1(InputStream in) {
+        try {
+            DataInputStream data = new DataInputStream(in);
+            if (data.readUnsignedShort() != 0xFFD8) {
+                return false;
+            }
+            while (true) {
+                int marker = data.readUnsignedShort();
+                if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA || marker == 0xFFD9) {
+                    return false;
+                }
+                if (marker == 0xFFE1) {
+                    return true;
+                }
+                data.skipNBytes(data.readUnsignedShort() - 2);
+            }
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static int parseApp1(byte[] segment) {
+        // "Exif\0\0" + TIFF 头
+        if (segment.length < 14 || segment[0] != 'E' || segment[1] != 'x' || segment[2] != 'i' || segment[3] != 'f') {
+            return 0;
+        }
+        ByteBuffer tiff = ByteBuffer.wrap(segment, 6, segment.length - 6).slice();
+        if (tiff.get(0) == 'I' && tiff.get(1) == 'I') {
+            tiff.order(ByteOrder.LITTLE_ENDIAN);
+        } else if (tiff.get(0) == 'M' && tiff.get(1) == 'M') {
+            tiff.order(ByteOrder.BIG_ENDIAN);
+        } else {
+            return 0;
+        }
+        int ifd0 = tiff.getInt(4);
+        int entries = Short.toUnsignedInt(tiff.getShort(ifd0));
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd0 + 2 + i * 12;
+            if (Short.toUnsignedInt(tiff.getShort(entry)) == TAG_ORIENTATION) {
+                int value = Short.toUnsignedInt(tiff.getShort(entry + 8));
+                return value >= 1 && value <= 8 ? value : NORMAL;
+            }
+        }
+        return 0;
+    }
+}
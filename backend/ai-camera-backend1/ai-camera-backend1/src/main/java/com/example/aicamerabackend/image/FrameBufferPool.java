@@ -0,0 +1,65 @@
+package com.example.aicamerabackend.image;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * 网关自己产生的图片字节（规范化后的 JPEG、阻塞模式下从 MultipartFile 读出的分块）用的堆外内存池。
+ * - 独立的 Netty PooledByteBufAllocator（只有 direct arena），不和 Reactor Netty 的全局池混在一起，占用可以单独观察
+ * - 预热后每帧不再分配新的堆数组，分块用完 release 回池；出站时 Netty 直接写这些 direct buffer，不再拷贝
+ * - 指标：pose.buffer.pool.reserved（池向系统申请、目前持有的 direct 内存）、
+ *   pose.buffer.pool.active.allocations（尚未归还 arena 的分配数；开启线程缓存时包括缓存里的）
+ */
+@Component
+public class FrameBufferPool {
+
+    private final PooledByteBufAllocator allocator;
+    private final NettyDataBufferFactory bufferFactory;
+
+    public FrameBufferPool(MeterRegistry meterRegistry,
+                           @Value("${ai.pose.buffer-pool.arenas:0}") int arenas,
+                           @Value("${ai.pose.buffer-pool.thread-cache:true}") boolean threadCache) {
+        int directArenas = arenas > 0 ? arenas : PooledByteBufAllocator.defaultNumDirectArena();
+        this.allocator = new PooledByteBufAllocator(true, 0, directArenas,
+                PooledByteBufAllocator.defaultPageSize(),
+                PooledByteBufAllocator.defaultMaxOrder(),
+                threadCache ? PooledByteBufAllocator.defaultSmallCacheSize() : 0,
+                threadCache ? PooledByteBufAllocator.defaultNormalCacheSize() : 0,
+                // 图片处理跑在普通线程（image-normalize、虚拟线程）上，不开这个线程缓存只对 Netty 线程生效
+                threadCache);
+        this.bufferFactory = new NettyDataBufferFactory(allocator);
+
+        Gauge.builder("pose.buffer.pool.reserved", this, FrameBufferPool::reservedBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("pose.buffer.pool.active.allocations", this, FrameBufferPool::activeAllocations)
+                .register(meterRegistry);
+    }
+
+    public DataBufferFactory bufferFactory() {
+        return bufferFactory;
+    }
+
+    public DataBuffer allocate(int initialCapacity) {
+        return bufferFactory.allocateBuffer(initialCapacity);
+    }
+
+    public long reservedBytes() {
+        return allocator.metric().usedDirectMemory();
+    }
+
+    public long activeAllocations() {
+        long total = 0;
+        for (PoolArenaMetric arena : allocator.metric().directArenas()) {
+            total += arena.numActiveAllocations();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.aicamerabackend.image;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import javax.imageio.stream.ImageInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 一帧已接收完的上传图片。
+ * - 保留入站的原始 DataBuffer 分块，不拼接、不拷贝；用完后必须调用 {@link #release()}。
+ * - SHA-256 在分块到达时顺带计算，不额外再扫一遍。
+ * - {@link #content()} 每次订阅都返回同一批分块的只读视图，可以重复发送（重试、对冲请求等）。
+ * - 引用计数：多个请求共享同一次上游调用时，调用方 {@link #retain()}，最后一个 release 才真正释放分块。
+ */
+public final class FrameImage {
+
+    private final String filename;
+    private final List<DataBuffer> chunks;
+    private final List<ByteBuffer> views;
+    private final long size;
+    private final String sha256;
+    private final AtomicInteger refCount = new AtomicInteger(1);
+
+    // readOn 任务的状态：排队中 / 执行中 / 已交出结果或已撤销 / 执行中被取消
+    private static final int PENDING = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+    private static final int CANCELLED = 3;
+
+    private FrameImage(String filename, List<DataBuffer> chunks, List<ByteBuffer> views, long size, String sha256) {
+        this.filename = filename;
+        this.chunks = chunks;
+        this.views = views;
+        this.size = size;
+        this.sha256 = sha256;
+    }
+
+    /**
+     * 边接收边算哈希；返回的 Mono 在最后一个分块到达后发出。
+     */
+    public static Mono<FrameImage> receive(Flux<DataBuffer> content, String filename) {
+        return Mono.defer(() -> {
+            MessageDigest digest = newDigest();
+            List<DataBuffer> chunks = new ArrayList<>();
+            List<ByteBuffer> views = new ArrayList<>();
+            long[] size = {0};
+            return content
+                    .doOnNext(buffer -> {
+                        chunks.add(buffer);
+                        size[0] += buffer.readableByteCount();
+                        try (DataBuffer.ByteBufferIterator it = buffer.readableByteBuffers()) {
+                            while (it.hasNext()) {
+                                ByteBuffer view = it.next().asReadOnlyBuffer();
+                                views.add(view);
+                                digest.update(view.duplicate());
+                            }
+                        }
+                    })
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .doOnError(e -> chunks.forEach(DataBufferUtils::release))
+                    .then(Mono.fromSupplier(() -> new FrameImage(
+                            filename, chunks, views, size[0], HexFormat.of().formatHex(digest.digest()))));
+        });
+    }
+
+    /**
+     * 用已在内存里的字节构造（如网关自己重新编码出的图片）。
+     */
+    public static FrameImage of(byte[] bytes, String filename) {
+        MessageDigest digest = newDigest();
+        digest.update(bytes);
+        DataBuffer buffer = DefaultDataBufferFactory.sharedInstance.wrap(bytes);
+        return new FrameImage(filename, List.of(buffer), List.of(ByteBuffer.wrap(bytes).asReadOnlyBuffer()),
+                bytes.length, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * 接管一个已写好的 DataBuffer（如池化 buffer 里重新编码出的 JPEG），release 时归还。
+     */
+    public static FrameImage of(DataBuffer buffer, String filename) {
+        MessageDigest digest = newDigest();
+        List<ByteBuffer> views = new ArrayList<>(1);
+        try (DataBuffer.ByteBufferIterator it = buffer.readableByteBuffers()) {
+            while (it.hasNext()) {
+                ByteBuffer view = it.next().asReadOnlyBuffer();
+                views.add(view);
+                digest.update(view.duplicate());
+            }
+        }
+        return new FrameImage(filename, List.of(buffer), views, buffer.readableByteCount(),
+                HexFormat.of().formatHex(digest.digest()));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Flux<DataBuffer> content() {
+        return Flux.fromIterable(views)
+                .map(view -> DefaultDataBufferFactory.sharedInstance.wrap(view.duplicate()));
+    }
+
+    /**
+     * 以 InputStream 形式顺序读取全部分块（供 ImageIO 解码），同样不拷贝。
+     */
+    public InputStream inputStream() {
+        return new InputStream() {
+            private int index;
+            private ByteBuffer current = ByteBuffer.allocate(0);
+
+            private boolean advance() {
+                while (!current.hasRemaining()) {
+                    if (index >= views.size()) {
+                        return false;
+                    }
+                    current = views.get(index++).duplicate();
+                }
+                return true;
+            }
+
+            @Override
+            public int read() {
+                return advance() ? current.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (len == 0) {
+                    return 0;
+                }
+                if (!advance()) {
+                    return -1;
+                }
+                int n = Math.min(len, current.remaining());
+                current.get(b, off, n);
+                return n;
+            }
+        };
+    }
+
+    /**
+     * 随机访问的 ImageInputStream（ImageIO 解码用），直接读分块，不落临时文件。
+     */
+    public ImageInputStream imageInputStream() {
+        return new FrameImageInputStream(views);
+    }
+
+    public String filename() {
+        return filename;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public String sha256() {
+        return sha256;
+    }
+
+    /**
+     * 在 scheduler 上读取这一帧（解码、算指纹等），期间自己持有一份引用：
+     * 线程池里的读取无法中断，调用方取消后马上 release 自己那份，分块也要等这次读取结束才归还。
+     * 还在排队时被取消则撤销任务并立即释放；执行中被取消时，读出的结果交给 discardLate 处理。
+     * reader 抛出的异常和线程池拒绝（RejectedExecutionException）以错误结束；reader 返回 null 时为空。
+     */
+    public <T> Mono<T> readOn(Scheduler scheduler, Reader<T> reader, Consumer<? super T> discardLate) {
+        return Mono.create(sink -> {
+            FrameImage source = retain();
+            AtomicInteger state = new AtomicInteger(PENDING);
+            Disposable task;
+            try {
+                task = scheduler.schedule(() -> {
+                    if (!state.compareAndSet(PENDING, RUNNING)) {
+                        return;
+                    }
+                    T result = null;
+                    Exception error = null;
+                    try {
+                        result = reader.read(source);
+                    } catch (Exception e) {
+                        error = e;
+                    } finally {
+                        source.release();
+                    }
+                    if (!state.compareAndSet(RUNNING, DONE)) {
+                        if (result != null) {
+                            discardLate.accept(result);
+                        }
+                    } else if (error != null) {
+                        sink.error(error);
+                    } else {
+                        sink.success(result);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                state.set(DONE);
+                source.release();
+                sink.error(e);
+                return;
+            }
+            sink.onCancel(() -> {
+                if (state.compareAndSet(PENDING, DONE)) {
+                    task.dispose();
+                    source.release();
+                } else {
+                    state.compareAndSet(RUNNING, CANCELLED);
+                }
+            });
+        });
+    }
+
+    @FunctionalInterface
+    public interface Reader<T> {
+        T read(FrameImage frame) throws Exception;
+    }
+
+    public FrameImage retain() {
+        refCount.incrementAndGet();
+        return this;
+    }
+
+    public void release() {
+        if (refCount.decrementAndGet() == 0) {
+            chunks.forEach(DataBufferUtils::release);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.aicamerabackend.image;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 直接在 FrameImage 的分块上随机读的 ImageInputStream。
+ * ImageIO.createImageInputStream(InputStream) 默认会把整张图缓存到临时文件（或堆上），这里不拷贝、不落盘。
+ */
+final class FrameImageInputStream extends ImageInputStreamImpl {
+
+    private final List<ByteBuffer> views;
+    private final long[] offsets;
+    private final long length;
+
+    FrameImageInputStream(List<ByteBuffer> views) {
+        this.views = views;
+        this.offsets = new long[views.size()];
+        long total = 0;
+        for (int i = 0; i < views.size(); i++) {
+            offsets[i] = total;
+            total += views.get(i).remaining();
+        }
+        this.length = total;
+    }
+
+    @Override
+    public int read() {
+        if (streamPos >= length) {
+            return -1;
+        }
+        bitOffset = 0;
+        int index = chunkAt(streamPos);
+        ByteBuffer view = views.get(index);
+        int b = view.get(view.position() + (int) (streamPos - offsets[index])) & 0xFF;
+        streamPos++;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (streamPos >= length) {
+            return -1;
+        }
+        bitOffset = 0;
+        int total = 0;
+        int index = chunkAt(streamPos);
+        while (total < len && index < views.size()) {
+            ByteBuffer view = views.get(index).duplicate();
+            int inChunk = (int) (streamPos - offsets[index]);
+            view.position(view.position() + inChunk);
+            int n = Math.min(len - total, view.remaining());
+            view.get(b, off + total, n);
+            total += n;
+            streamPos += n;
+            index++;
+        }
+        return total;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    private int chunkAt(long position) {
+        int low = 0;
+        int high = offsets.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (offsets[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+}
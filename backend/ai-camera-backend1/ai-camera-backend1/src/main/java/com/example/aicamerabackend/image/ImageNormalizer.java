@@ -0,0 +1,205 @@
+package com.example.aicamerabackend.image;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * 转发给 9001 之前的图片规范化：按 EXIF 方向摆正 → 长边缩到目标尺寸 → 按目标质量重新编码为 JPEG（不带 EXIF）。
+ * - 模型只需要 ~640px，手机原图 4~12MP，缩小后上传和推理时间都按像素数下降
+ * - 解码直接读入站分块，编码直接写进 FrameBufferPool 的池化 direct buffer，不落临时文件、不产生整图大小的堆数组
+ * - 解码 / 缩放 / 编码在独立的有界 CPU 线程池上执行，不占 event loop；排队超过上限直接报错走原图
+ * - 字节数指标：pose.image.bytes{direction=in|out}；耗时：pose.image.normalize
+ */
+@Component
+public class ImageNormalizer {
+
+    private final boolean enabled;
+    private final int targetLongEdge;
+    private final float quality;
+    private final Scheduler workers;
+    private final DistributionSummary bytesIn;
+    private final DistributionSummary bytesOut;
+    private final Timer normalizeTimer;
+    private final FrameBufferPool bufferPool;
+
+    public ImageNormalizer(MeterRegistry meterRegistry,
+                           FrameBufferPool bufferPool,
+                           @Value("${ai.pose.preprocess.enabled:true}") boolean enabled,
+                           @Value("${ai.pose.preprocess.target-long-edge:640}") int targetLongEdge,
+                           @Value("${ai.pose.preprocess.jpeg-quality:0.85}") float quality,
+                           @Value("${ai.pose.preprocess.threads:0}") int threads,
+                           @Value("${ai.pose.preprocess.queue-capacity:256}") int queueCapacity) {
+        this.bufferPool = bufferPool;
+        this.enabled = enabled;
+        this.targetLongEdge = targetLongEdge;
+        this.quality = quality;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.workers = Schedulers.newBoundedElastic(poolSize, queueCapacity, "image-normalize");
+        this.bytesIn = DistributionSummary.builder("pose.image.bytes")
+                .tag("direction", "in")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.bytesOut = DistributionSummary.builder("pose.image.bytes")
+                .tag("direction", "out")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.normalizeTimer = Timer.builder("pose.image.normalize").register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.dispose();
+    }
+
+    /**
+     * @return 规范化后的新图片；无需处理或无法处理时返回原图（已 retain）。调用方负责 release 返回值。
+     */
+    public Mono<FrameImage> normalize(FrameImage frame) {
+        return normalize(frame, targetLongEdge);
+    }
+
+    /**
+     * 按指定长边规范化（如 /ai/write 的配图需要比姿势分析更多细节），同样在有界的 CPU 线程池上执行。
+     * <p>
+     * 解码经 FrameImage.readOn：读取期间自己持有一份 frame 引用，调用方取消也不会提前归还分块；
+     * 取消之后才算出的结果由工作线程释放。
+     */
+    public Mono<FrameImage> normalize(FrameImage frame, int targetLongEdge) {
+        if (!enabled) {
+            return Mono.fromSupplier(frame::retain);
+        }
+        // 无法处理或线程池排满：原图照发（调用方仍持有 frame，可以直接 retain）
+        return frame.readOn(workers, source -> normalizeBlocking(source, targetLongEdge), FrameImage::release)
+                .onErrorResume(e -> Mono.fromSupplier(frame::retain));
+    }
+
+    // 测试里覆盖以在读取中途挂起
+    FrameImage normalizeBlocking(FrameImage frame, int targetLongEdge) throws IOException {
+        long start = System.nanoTime();
+        int orientation = ExifOrientation.read(frame.inputStream());
+        boolean hasExif = ExifOrientation.hasApp1(frame.inputStream());
+
+        BufferedImage decoded;
+        int longEdge;
+        try (ImageInputStream iis = frame.imageInputStream()) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                return frame.retain();
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                longEdge = Math.max(reader.getWidth(0), reader.getHeight(0));
+                if (longEdge <= targetLongEdge && orientation == ExifOrientation.NORMAL && !hasExif) {
+                    // 已经足够小且没有需要去掉的元数据：原样转发，避免二次压缩损失
+                    return frame.retain();
+                }
+                // 先按整数步长抽样解码到 [target, 2*target)，再做一次小倍率的双线性缩放
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, longEdge / targetLongEdge);
+                param.setSourceSubsampling(step, step, 0, 0);
+                decoded = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        BufferedImage oriented = scaleAndOrient(decoded, orientation, targetLongEdge);
+        DataBuffer jpeg = encodeJpeg(oriented);
+
+        bytesIn.record(frame.size());
+        bytesOut.record(jpeg.readableByteCount());
+        normalizeTimer.record(System.nanoTime() - start, java.util.concurrent.TimeUnit.NANOSECONDS);
+        return FrameImage.of(jpeg, jpegFilename(frame.filename()));
+    }
+
+    private static BufferedImage scaleAndOrient(BufferedImage src, int orientation, int targetLongEdge) {
+        int longEdge = Math.max(src.getWidth(), src.getHeight());
+        double scale = longEdge > targetLongEdge ? (double) targetLongEdge / longEdge : 1.0;
+        int w = Math.max(1, (int) Math.round(src.getWidth() * scale));
+        int h = Math.max(1, (int) Math.round(src.getHeight() * scale));
+        boolean swap = orientation >= 5;
+
+        BufferedImage out = new BufferedImage(swap ? h : w, swap ? w : h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            AffineTransform transform = orientationTransform(orientation, w, h);
+            transform.concatenate(AffineTransform.getScaleInstance(scale, scale));
+            g.drawImage(src, transform, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    /**
+     * EXIF 方向 1~8 对应的仿射变换（w/h 为缩放后、摆正前的尺寸）。
+     */
+    private static AffineTransform orientationTransform(int orientation, int w, int h) {
+        return switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0);   // 水平翻转
+            case 3 -> new AffineTransform(-1, 0, 0, -1, w, h);  // 旋转 180°
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, h);   // 垂直翻转
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);    // 转置
+            case 6 -> new AffineTransform(0, 1, -1, 0, h, 0);   // 顺时针 90°
+            case 7 -> new AffineTransform(0, -1, -1, 0, h, w);  // 反转置
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, w);   // 逆时针 90°
+            default -> new AffineTransform();
+        };
+    }
+
+    /**
+     * 编码进池化的 direct buffer；初始容量按每像素 ~0.25 字节估，不够时在池内扩容。失败时归还 buffer。
+     */
+    private DataBuffer encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        DataBuffer out = bufferPool.allocate(Math.max(16 * 1024, image.getWidth() * image.getHeight() / 4));
+        try (ImageOutputStream ios = new DataBufferImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException | RuntimeException e) {
+            DataBufferUtils.release(out);
+            throw e;
+        } finally {
+            writer.dispose();
+        }
+        return out;
+    }
+
+    private static String jpegFilename(String filename) {
+        if (filename == null || filename.isBlank()) {
+            return "frame.jpg";
+        }
+        int dot = filename.lastIndexOf('.');
+        return (dot > 0 ? filename.substring(0, dot) : filename) + ".jpg";
+    }
+}
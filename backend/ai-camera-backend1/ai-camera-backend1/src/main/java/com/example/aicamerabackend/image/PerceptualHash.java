@@ -0,0 +1,103 @@
+package com.example.aicamerabackend.image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * 感知哈希（dHash）：把图缩到 9x8 的亮度图，比较每行相邻像素的明暗，得到 64 位指纹。
+ * 手机稳住不动时连续帧的指纹只差几位，用汉明距离判断“几乎同一画面”。
+ */
+public final class PerceptualHash {
+
+    private static final int WIDTH = 9;
+    private static final int HEIGHT = 8;
+    // 解码时按步长抽样，只需要把长边解到 ~64px，省掉大部分像素写出
+    private static final int DECODE_TARGET = 64;
+
+    private PerceptualHash() {
+    }
+
+    /**
+     * @return 64 位 dHash；图片无法解码时返回 null
+     */
+    public static Long dHash(InputStream in) throws IOException {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+            return iis == null ? null : dHash(iis);
+        }
+    }
+
+    /**
+     * 直接在 ImageInputStream 上算（如 {@link FrameImage#imageInputStream()}），调用方负责关闭。
+     */
+    public static Long dHash(ImageInputStream iis) throws IOException {
+        BufferedImage image = decodeSubsampled(iis);
+        if (image == null) {
+            return null;
+        }
+        double[] luma = downscaleLuma(image);
+        long hash = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH - 1; x++) {
+                hash <<= 1;
+                if (luma[y * WIDTH + x] > luma[y * WIDTH + x + 1]) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    private static BufferedImage decodeSubsampled(ImageInputStream iis) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(iis, true, true);
+            int longEdge = Math.max(reader.getWidth(0), reader.getHeight(0));
+            int step = Math.max(1, longEdge / DECODE_TARGET);
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(step, step, 0, 0);
+            return reader.read(0, param);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * 按块求平均把图缩到 9x8，取 BT.601 亮度。
+     */
+    private static double[] downscaleLuma(BufferedImage image) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        double[] sum = new double[WIDTH * HEIGHT];
+        int[] count = new int[WIDTH * HEIGHT];
+        int[] row = new int[w];
+        for (int y = 0; y < h; y++) {
+            image.getRGB(0, y, w, 1, row, 0, w);
+            int cy = y * HEIGHT / h;
+            for (int x = 0; x < w; x++) {
+                int rgb = row[x];
+                double l = 0.299 * ((rgb >> 16) & 0xFF) + 0.587 * ((rgb >> 8) & 0xFF) + 0.114 * (rgb & 0xFF);
+                int cell = cy * WIDTH + x * WIDTH / w;
+                sum[cell] += l;
+                count[cell]++;
+            }
+        }
+        for (int i = 0; i < sum.length; i++) {
+            sum[i] = count[i] == 0 ? 0 : sum[i] / count[i];
+        }
+        return sum;
+    }
+}
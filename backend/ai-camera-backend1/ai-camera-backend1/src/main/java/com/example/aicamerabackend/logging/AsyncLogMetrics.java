@@ -0,0 +1,47 @@
+package com.example.aicamerabackend.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+
+/**
+ * 把 logback-spring.xml 里配置的 RingBufferAppender / LogSamplingFilter 的计数注册到 Micrometer：
+ * logging.async.dropped、logging.async.queue.size、logging.async.sampled-out。
+ */
+@Component
+public class AsyncLogMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+            return;
+        }
+        Iterator<Appender<ILoggingEvent>> appenders = context.getLogger(Logger.ROOT_LOGGER_NAME).iteratorForAppenders();
+        while (appenders.hasNext()) {
+            if (appenders.next() instanceof RingBufferAppender ring) {
+                FunctionCounter.builder("logging.async.dropped", ring, RingBufferAppender::getDropped)
+                        .description("Log events dropped because the ring buffer was full")
+                        .tag("appender", ring.getName())
+                        .register(registry);
+                Gauge.builder("logging.async.queue.size", ring, RingBufferAppender::getQueueSize)
+                        .tag("appender", ring.getName())
+                        .register(registry);
+            }
+        }
+        context.getTurboFilterList().stream()
+                .filter(LogSamplingFilter.class::isInstance)
+                .map(LogSamplingFilter.class::cast)
+                .forEach(filter -> FunctionCounter.builder("logging.async.sampled-out", filter, LogSamplingFilter::getSampledOut)
+                        .description("Log events skipped by per-logger sampling")
+                        .register(registry));
+    }
+}
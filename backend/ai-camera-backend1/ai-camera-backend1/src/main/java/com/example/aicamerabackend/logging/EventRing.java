@@ -0,0 +1,79 @@
+package com.example.aicamerabackend.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 定长环形缓冲：多个生产者（请求线程）用 CAS 抢位置，单个消费者（日志写出线程）按顺序取。
+ * 每个槽位带一个序号，生产者只在序号等于自己抢到的位置时写入，满了直接返回 false，从不等待。
+ */
+final class EventRing<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // 只有消费者线程读写
+    private long head;
+
+    EventRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 仅限消费者线程调用；空时返回 null。
+     */
+    E poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        E element = slots.get(index);
+        slots.set(index, null);
+        sequences.set(index, head + mask + 1);
+        head++;
+        return element;
+    }
+
+    /**
+     * 仅限消费者线程调用：下一个位置是否还没有发布完成的元素。
+     */
+    boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.aicamerabackend.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按 logger 采样：rates 形如 "com.example.aicamerabackend.controller=0.1,com.example.aicamerabackend.service=0.5"，
+ * 按最长前缀匹配，未配置的 logger 全量保留；WARN 和 ERROR 永不采样，采样只用来削减高频的 INFO / DEBUG。
+ * 作为 TurboFilter 在创建日志事件之前就做决定，被采样掉的日志不会格式化，也不会进入环形缓冲。
+ * 采样掉的条数暴露为 logging.async.sampled-out。
+ */
+public class LogSamplingFilter extends TurboFilter {
+
+    private final TreeMap<String, Double> rates = new TreeMap<>();
+    private final Map<String, Double> resolved = new ConcurrentHashMap<>();
+    private final LongAdder sampledOut = new LongAdder();
+
+    public void setRates(String spec) {
+        rates.clear();
+        resolved.clear();
+        if (spec == null || spec.isBlank()) {
+            return;
+        }
+        for (String entry : spec.split(",")) {
+            int eq = entry.indexOf('=');
+            if (eq <= 0) {
+                addWarn("Ignoring malformed sampling rate: " + entry);
+                continue;
+            }
+            rates.put(entry.substring(0, eq).strip(), Double.parseDouble(entry.substring(eq + 1).strip()));
+        }
+    }
+
+    public long getSampledOut() {
+        return sampledOut.sum();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level == null || level.isGreaterOrEqual(Level.WARN) || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        // isXxxEnabled() / atXxx() 的级别检查不带 format，只在真正写日志时掷一次骰子，避免同一条日志被采样两次
+        if (format == null) {
+            return FilterReply.NEUTRAL;
+        }
+        double rate = resolved.computeIfAbsent(logger.getName(), this::rateFor);
+        if (rate >= 1.0 || ThreadLocalRandom.current().nextDouble() < rate) {
+            return FilterReply.NEUTRAL;
+        }
+        sampledOut.increment();
+        return FilterReply.DENY;
+    }
+
+    private double rateFor(String loggerName) {
+        String name = loggerName;
+        while (true) {
+            Double rate = rates.get(name);
+            if (rate != null) {
+                return rate;
+            }
+            int dot = name.lastIndexOf('.');
+            if (dot < 0) {
+                return 1.0;
+            }
+            name = name.substring(0, dot);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.aicamerabackend.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步日志 appender：请求线程只把事件放进 EventRing 就返回，由一个后台线程交给下游 appender（JSON 控制台）写出。
+ * 缓冲满时直接丢弃并计数（dropped），绝不阻塞请求线程；丢弃数通过 AsyncLogMetrics 暴露为 logging.async.dropped。
+ * 在 logback-spring.xml 中配置，capacity 对应 logging.async.capacity。
+ */
+public class RingBufferAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+        implements AppenderAttachable<ILoggingEvent> {
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+    private final LongAdder dropped = new LongAdder();
+    private int capacity = 8192;
+    private EventRing<ILoggingEvent> ring;
+    private Thread worker;
+    private volatile boolean running;
+    // 写出线程因缓冲为空而 park 时为 true，append 看到它才去 unpark，缓冲非空时不产生额外的系统调用
+    private volatile boolean sleeping;
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public int getQueueSize() {
+        return ring == null ? 0 : ring.size();
+    }
+
+    public int getCapacity() {
+        return ring == null ? capacity : ring.capacity();
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        ring = new EventRing<>(capacity);
+        running = true;
+        worker = new Thread(this::drainLoop, "log-ring-" + getName());
+        worker.setDaemon(true);
+        worker.start();
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        // 在请求线程上把消息格式化、线程名、MDC 固定下来，后台线程写出时才能拿到正确的值
+        event.prepareForDeferredProcessing();
+        if (!ring.offer(event)) {
+            dropped.increment();
+        } else if (sleeping) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (drain()) {
+                continue;
+            }
+            sleeping = true;
+            // 置位后再看一次：置位之前放进来的事件，生产者可能没看到 sleeping，不会来 unpark
+            if (ring.isEmpty() && running) {
+                LockSupport.park(this);
+            }
+            sleeping = false;
+        }
+        drain();
+    }
+
+    private boolean drain() {
+        boolean any = false;
+        ILoggingEvent event;
+        while ((event = ring.poll()) != null) {
+            appenders.appendLoopOnAppenders(event);
+            any = true;
+        }
+        return any;
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> appender) {
+        appenders.addAppender(appender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.aicamerabackend.service;
+
+import com.example.aicamerabackend.dto.PoseSugResponse;
+
+/**
+ * 一次帧分析的结果。degradedCause 不为 null 表示回退了 mock，取值同 pose.frame.fallback 的 cause
+ * （overload、timeout、circuit-open 等），控制器据此加 X-Pose-Degraded 头或相应的事件字段。
+ */
+public record FrameAnalysis(PoseSugResponse response, String degradedCause) {
+
+    static FrameAnalysis of(PoseSugResponse response) {
+        return new FrameAnalysis(response, null);
+    }
+
+    public boolean degraded() {
+        return degradedCause != null;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.aicamerabackend.service;
+
+import com.example.aicamerabackend.dto.PoseSugResponse;
+import com.example.aicamerabackend.image.FrameImage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 帧分析结果缓存：同一张图 + 同一意图 + 同一 meta 直接复用上次 9001 的结果。
+ * - key = 图片 SHA-256 + userIntent + 规范化后的 meta（JSON key 排序、去空白）
+ * - Caffeine 的 W-TinyLFU 淘汰，按条数限容 + 写入后 TTL
+ * - 命中 / 未命中 / 淘汰指标：cache.gets{cache=frameAnalysis,result=hit|miss}、cache.evictions
+ * - 只缓存 9001 的真实结果，mock 不进缓存
+ */
+@Component
+public class FrameAnalysisCache {
+
+    public record FrameKey(String imageSha256, String userIntent, String meta) {
+    }
+
+    private final JsonMapper jsonMapper;
+    private final boolean enabled;
+    private final Cache<FrameKey, PoseSugResponse> cache;
+
+    public FrameAnalysisCache(JsonMapper jsonMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${ai.pose.cache.enabled:true}") boolean enabled,
+                              @Value("${ai.pose.cache.max-size:10000}") long maxSize,
+                              @Value("${ai.pose.cache.ttl:10m}") Duration ttl) {
+        this.jsonMapper = jsonMapper;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "frameAnalysis");
+    }
+
+    public FrameKey keyOf(FrameImage frame, String userIntent, String meta) {
+        String intent = userIntent == null ? "" : userIntent.strip();
+        return new FrameKey(frame.sha256(), intent, normalizeMeta(meta));
+    }
+
+    /**
+     * 命中时返回一份带当前 sessionId 的副本（缓存里的结果可能来自别的会话）。
+     */
+    public PoseSugResponse get(FrameKey key, String sessionId) {
+        if (!enabled) {
+            return null;
+        }
+        PoseSugResponse hit = cache.getIfPresent(key);
+        return hit == null ? null : hit.withSessionId(sessionId);
+    }
+
+    public void put(FrameKey key, PoseSugResponse response) {
+        if (enabled && response != null) {
+            cache.put(key, response);
+        }
+    }
+
+    private String normalizeMeta(String meta) {
+        if (meta == null || meta.isBlank()) {
+            return "";
+        }
+        try {
+            return jsonMapper.writeValueAsString(sortKeys(jsonMapper.readValue(meta, Object.class)));
+        } catch (JacksonException e) {
+            // 不是合法 JSON：按原文（去首尾空白）参与 key
+            return meta.strip();
+        }
+    }
+
+    private Object sortKeys(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            map.forEach((k, v) -> sorted.put(String.valueOf(k), sortKeys(v)));
+            return sorted;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(v -> copy.add(sortKeys(v)));
+            return copy;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.aicamerabackend.service;
+
+import com.example.aicamerabackend.client.PoseUpstreamRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * /api/frame/analyze 各阶段的指标，用来区分延迟花在网关、网络还是模型上：
+ * - pose.frame.stage{stage=receive|upstream|fallback|serialize, outcome}：各阶段耗时（带百分位直方图）
+ *   receive 从请求到达网关（FrameArrivalFilter）到图片最后一个分块收完，即上传 + multipart 解析，upstream 是整次 9001 调用（含排队、对冲），serialize 是响应 JSON 编码
+ * - pose.frame.upload.size：上传图片字节数（total 即累计上传字节）
+ * - pose.frame.fallback{cause}：回退 mock 的次数，按原因分
+ * - pose.frame.requests{intent}：按意图统计的帧数；意图是自由文本，只保留前 max-tags 种，其余计为 other
+ * /actuator/prometheus 可直接抓取。
+ */
+@Component
+public class FrameMetrics {
+
+    private static final int MAX_INTENT_TAG_LENGTH = 32;
+
+    private final MeterRegistry meterRegistry;
+    private final int maxIntentTags;
+    private final Set<String> intentTags = ConcurrentHashMap.newKeySet();
+    private final DistributionSummary uploadSize;
+
+    public FrameMetrics(MeterRegistry meterRegistry,
+                        @Value("${ai.metrics.intent.max-tags:50}") int maxIntentTags) {
+        this.meterRegistry = meterRegistry;
+        this.maxIntentTags = maxIntentTags;
+        this.uploadSize = DistributionSummary.builder("pose.frame.upload.size")
+                .baseUnit("bytes")
+                .description("Size of uploaded frame images")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * 给一个阶段计时：从订阅开始，到完成 / 出错 / 取消为止，outcome 分别记为 success / error / cancelled。
+     */
+    public <T> Mono<T> time(String stage, Mono<T> mono) {
+        return Mono.defer(() -> timeSince(stage, System.nanoTime(), mono));
+    }
+
+    /**
+     * 从给定的 System.nanoTime() 时刻（如请求到达网关时）算起，到 mono 结束为止。
+     */
+    public <T> Mono<T> timeSince(String stage, long startNanos, Mono<T> mono) {
+        return mono.doFinally(signal -> stageTimer(stage, switch (signal) {
+            case ON_COMPLETE -> "success";
+            case ON_ERROR -> "error";
+            default -> "cancelled";
+        }).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * 同步版本，供阻塞模式和编码器使用。
+     */
+    public <T> T time(String stage, Supplier<T> supplier) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            T result = supplier.get();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(stageTimer(stage, outcome));
+        }
+    }
+
+    public void recordUpload(long bytes) {
+        uploadSize.record(bytes);
+    }
+
+    public void recordRequest(String userIntent) {
+        Counter.builder("pose.frame.requests")
+                .tag("intent", intentTag(userIntent))
+                .description("Frames analyzed, by user intent")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordFallback(Throwable error) {
+        Counter.builder("pose.frame.fallback")
+                .tag("cause", causeOf(error))
+                .description("Frames answered with the mock, by cause")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Timer stageTimer(String stage, String outcome) {
+        return Timer.builder("pose.frame.stage")
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .description("Time spent in each stage of /api/frame/analyze")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private String intentTag(String userIntent) {
+        if (userIntent == null || userIntent.isBlank()) {
+            return "none";
+        }
+        String intent = userIntent.strip();
+        if (intent.length() > MAX_INTENT_TAG_LENGTH) {
+            intent = intent.substring(0, MAX_INTENT_TAG_LENGTH);
+        }
+        if (intentTags.contains(intent)) {
+            return intent;
+        }
+        // 非严格上限：并发时可能略多几种，不影响
+        if (intentTags.size() < maxIntentTags) {
+            intentTags.add(intent);
+            return intent;
+        }
+        return "other";
+    }
+
+    static String causeOf(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof PoseUpstreamRejectedException rejected) {
+                return rejected.getReason();
+            }
+            if (t instanceof TimeoutException) {
+                return "timeout";
+            }
+            if (t instanceof WebClientResponseException) {
+                return "upstream-status";
+            }
+            if (t instanceof WebClientRequestException) {
+                return "upstream-io";
+            }
+        }
+        return "other";
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.aicamerabackend.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * 上游过载、请求在排队阶段就被丢弃（ai.pose.shed.response=unavailable）。不回退 mock，直接 503 + Retry-After。
+ */
+public class FrameShedException extends ResponseStatusException {
+
+    public FrameShedException(String sessionId) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, "upstream overloaded, sessionId=" + sessionId);
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return headers;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.aicamerabackend.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 同一 sessionId 来了更新的帧，本次分析被取消。前端收到 409 直接丢弃即可，新帧的结果会另行返回。
+ */
+@ResponseStatus(value = HttpStatus.CONFLICT, reason = "superseded by a newer frame of the same session")
+public class FrameSupersededException extends RuntimeException {
+
+    public FrameSupersededException(String sessionId) {
+        super("frame superseded, sessionId=" + sessionId);
+    }
+}
@@ -2,33 +2,189 @@ package com.example.aicamerabackend.service;
 
 import com.example.aicamerabackend.client.*;
 import com.example.aicamerabackend.dto.*;
+import com.example.aicamerabackend.image.FrameImage;
+import com.example.aicamerabackend.image.ImageNormalizer;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.Optional;
 
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class GuidanceService {
 
     private final PoseAiClient poseAiClient;
+    private final FrameAnalysisCache frameAnalysisCache;
+    private final NearDuplicateFrameIndex nearDuplicateFrameIndex;
+    private final SessionStore sessionStore;
+    private final InFlightPoseCalls inFlightPoseCalls;
+    private final UpstreamScheduler upstreamScheduler;
+    private final LatestFrameTracker latestFrameTracker;
+    private final ImageNormalizer imageNormalizer;
+    private final FrameMetrics frameMetrics;
 
     /**
      * 调用 9001 子后端 /posesug 获取姿势推荐结果。
      * - ASR/TTS 均在前端完成，所以后端只返回 voiceAudioText（要播报的文字），不再生成 audioUrl。
-     * - 若 9001 不可用，则 fallback 返回 mock，保证链路不崩。
+     * - 若 9001 不可用，则 fallback 返回 mock，保证链路不崩；结果里带上回退原因（FrameAnalysis.degradedCause）。
+     * - 全程非阻塞：上游调用与 mock 兜底通过 onErrorResume 组合在同一条 Mono 链上。
+     * - 图片接收时顺带算哈希，命中 FrameAnalysisCache 时不再调用 9001。
+     * - 与本会话上一帧几乎相同（dHash）且意图和 meta 未变时，复用上一次结果。
+     * - 每个会话最近的结果、指纹、意图和耗时记在 SessionStore。
+     * - 完全相同的请求正在调用 9001 时，加入那次调用而不是再发一次（InFlightPoseCalls）。
+     * - 真正调用 9001 前经过 UpstreamScheduler 排队：带 userIntent 的请求优先，会话之间轮转。
+     * - 上游过载（排队时长持续超标）时在排队阶段就被丢弃：默认立即回 mock，或按配置以 503 结束（FrameShedException）。
+     * - 同会话来了更新的帧时，本次分析被取消并以 409 结束（LatestFrameTracker），不回退 mock。
+     * - 图片接收、9001 调用、回退 mock 各阶段计时，见 FrameMetrics；接收阶段从 arrivalNanos（请求到达网关的
+     *   System.nanoTime）算起，而不是从订阅图片体算起——那时 multipart 多半已经读完了。
      */
-    public PoseSugResponse analyzeFrame(MultipartFile image,
-                                        String sessionId,
-                                        String userIntent,
-                                        String meta) {
+    public Mono<FrameAnalysis> analyzeFrame(FilePart image,
+                                              String sessionId,
+                                              String userIntent,
+                                              String meta,
+                                              long arrivalNanos) {
+        frameMetrics.recordRequest(userIntent);
+        Mono<FrameImage> received = frameMetrics
+                .timeSince("receive", arrivalNanos, FrameImage.receive(image.content(), image.filename()))
+                .doOnNext(frame -> frameMetrics.recordUpload(frame.size()));
+        Mono<PoseSugResponse> analysis = Mono.usingWhen(
+                received,
+                frame -> analyze(frame, sessionId, userIntent, meta, UpstreamScheduler.Priority.of(userIntent)),
+                frame -> Mono.fromRunnable(frame::release));
+        return withFallback(latestFrameTracker.latestWins(sessionId, analysis), sessionId, userIntent, meta);
+    }
+
+    /**
+     * 已经收完的一帧（WebSocket 通道）：同样走缓存 / 近重复 / 合并 / 9001 / mock 兜底，
+     * 但不经过 LatestFrameTracker——通道自己保证同一会话同时只分析一帧，并丢弃排队中的旧帧。
+     * 通道里的帧是连续模式的后台帧（会一直带着上一次的语音意图），调度时一律按 BACKGROUND。
+     * frame 的释放由调用方负责。
+     */
+    public Mono<FrameAnalysis> analyzeFrame(FrameImage frame,
+                                              String sessionId,
+                                              String userIntent,
+                                              String meta) {
+        frameMetrics.recordRequest(userIntent);
+        frameMetrics.recordUpload(frame.size());
+        return withFallback(analyze(frame, sessionId, userIntent, meta, UpstreamScheduler.Priority.BACKGROUND),
+                sessionId, userIntent, meta);
+    }
+
+    private Mono<FrameAnalysis> withFallback(Mono<PoseSugResponse> analysis,
+                                             String sessionId,
+                                             String userIntent,
+                                             String meta) {
+        return analysis.map(FrameAnalysis::of).onErrorResume(GuidanceService::canFallback, e -> {
+            String cause = FrameMetrics.causeOf(e);
+            log.atWarn().setMessage("pose AI failed, fallback to mock")
+                    .addKeyValue("sessionId", sessionId)
+                    .addKeyValue("cause", cause)
+                    .addKeyValue("reason", e.getMessage())
+                    .log();
+            frameMetrics.recordFallback(e);
+            return frameMetrics.time("fallback", Mono.fromSupplier(() -> analyzeFrameMock(sessionId, userIntent, meta)))
+                    .map(mock -> new FrameAnalysis(mock, cause));
+        });
+    }
+
+    // 被新帧取代（409）和配置为 503 的过载丢弃不回退 mock
+    private static boolean canFallback(Throwable e) {
+        return !(e instanceof FrameSupersededException) && !(e instanceof FrameShedException);
+    }
+
+    private Mono<PoseSugResponse> analyze(FrameImage frame,
+                                          String sessionId,
+                                          String userIntent,
+                                          String meta,
+                                          UpstreamScheduler.Priority priority) {
+        FrameAnalysisCache.FrameKey key = frameAnalysisCache.keyOf(frame, userIntent, meta);
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            // 精确缓存只要 SHA-256（接收时已算好），先查它；命中时不在响应路径上解码算 dHash
+            PoseSugResponse cached = frameAnalysisCache.get(key, sessionId);
+            if (cached != null) {
+                recordCacheHit(frame, key, sessionId, userIntent, cached, System.nanoTime() - start);
+                return Mono.just(cached);
+            }
+            return nearDuplicateFrameIndex.fingerprint(frame)
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .flatMap(fingerprint -> {
+                        Long hash = fingerprint.orElse(null);
+                        PoseSugResponse reused = nearDuplicateFrameIndex.findNearDuplicate(sessionId, hash, key);
+                        if (reused != null) {
+                            sessionStore.recordRequest(sessionId, System.nanoTime() - start);
+                            return Mono.just(reused);
+                        }
+                        return inFlightPoseCalls.execute(key, sessionId, () -> upstreamScheduler.schedule(sessionId, priority,
+                                        () -> callUpstream(key, frame, sessionId, userIntent, meta)))
+                                .doOnNext(response -> sessionStore.recordAnalysis(
+                                        sessionId, hash, userIntent, key.meta(), response, System.nanoTime() - start));
+                    });
+        });
+    }
+
+    /**
+     * 精确缓存命中：SessionStore 仍需要这一帧的指纹（下一帧的近重复判断要用），在响应之外另算，算完再记。
+     * fingerprint 自己持有 frame 引用，请求结束、frame 被释放后仍可安全读完。
+     */
+    private void recordCacheHit(FrameImage frame,
+                                FrameAnalysisCache.FrameKey key,
+                                String sessionId,
+                                String userIntent,
+                                PoseSugResponse cached,
+                                long elapsedNanos) {
+        nearDuplicateFrameIndex.fingerprint(frame)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .subscribe(fingerprint -> sessionStore.recordAnalysis(
+                        sessionId, fingerprint.orElse(null), userIntent, key.meta(), cached, elapsedNanos));
+    }
+
+    /**
+     * 发给 9001 的是规范化（摆正、缩小、去 EXIF）之后的图片。共享的上游调用全程持有自己的引用，
+     * 发起请求的那个等待方先取消、外层 usingWhen 释放 frame 时，分块不会被提前归还：
+     * 规范化期间由 ImageNormalizer 自己 retain 原图直到工作线程读完；发送期间持有的是 normalize 的结果
+     * （新编码的图片，或 retain 过的原图）。
+     */
+    private Mono<PoseSugResponse> callUpstream(FrameAnalysisCache.FrameKey key,
+                                               FrameImage frame,
+                                               String sessionId,
+                                               String userIntent,
+                                               String meta) {
+        return Mono.usingWhen(
+                imageNormalizer.normalize(frame),
+                retained -> frameMetrics.time("upstream", poseAiClient.poseSug(retained, sessionId, userIntent, meta))
+                        .doOnNext(response -> frameAnalysisCache.put(key, response)),
+                retained -> Mono.fromRunnable(retained::release));
+    }
+
+    /**
+     * servlet + 虚拟线程模式下的同步版本：在请求所在的虚拟线程上直接阻塞等待 9001，失败同样回退 mock。
+     */
+    public PoseSugResponse analyzeFrameBlocking(MultipartFile image,
+                                                String sessionId,
+                                                String userIntent,
+                                                String meta) {
+        frameMetrics.recordRequest(userIntent);
+        frameMetrics.recordUpload(image.getSize());
         try {
-            return poseAiClient.poseSug(image, sessionId, userIntent, meta);
+            return frameMetrics.time("upstream", () -> poseAiClient.poseSugBlocking(image, sessionId, userIntent, meta));
         } catch (Exception e) {
-            System.out.println("Pose AI failed, fallback to mock. reason=" + e.getMessage());
-            return analyzeFrameMock(sessionId, userIntent, meta);
+            log.atWarn().setMessage("pose AI failed, fallback to mock")
+                    .addKeyValue("sessionId", sessionId)
+                    .addKeyValue("cause", FrameMetrics.causeOf(e))
+                    .addKeyValue("reason", e.getMessage())
+                    .log();
+            frameMetrics.recordFallback(e);
+            return frameMetrics.time("fallback", () -> analyzeFrameMock(sessionId, userIntent, meta));
         }
     }
 
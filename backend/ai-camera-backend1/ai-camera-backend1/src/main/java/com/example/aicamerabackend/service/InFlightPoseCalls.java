@@ -0,0 +1,56 @@
+package com.example.aicamerabackend.service;
+
+import com.example.aicamerabackend.dto.PoseSugResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 单飞（single-flight）：同一 FrameKey 的请求并发到达时（超时重试、双击 AI 姿势确认），只发一次 9001，
+ * 所有等待方共享同一个 Mono 的结果。
+ * - share()：某个等待方取消只会退订自己；最后一个等待方也取消时才取消上游调用
+ * - 调用结束（成功 / 失败 / 全部取消）后从表中移除，之后的同 key 请求交给缓存或重新调用
+ * - 合并掉的调用数：pose.upstream.saved{reason=coalesced}
+ */
+@Component
+public class InFlightPoseCalls {
+
+    private final Map<FrameAnalysisCache.FrameKey, Mono<PoseSugResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    public InFlightPoseCalls(MeterRegistry meterRegistry) {
+        this.coalesced = Counter.builder("pose.upstream.saved")
+                .tag("reason", "coalesced")
+                .description("Upstream calls avoided by joining an identical in-flight request")
+                .register(meterRegistry);
+    }
+
+    public Mono<PoseSugResponse> execute(FrameAnalysisCache.FrameKey key,
+                                         String sessionId,
+                                         Supplier<Mono<PoseSugResponse>> call) {
+        return Mono.defer(() -> {
+            AtomicReference<Mono<PoseSugResponse>> self = new AtomicReference<>();
+            Mono<PoseSugResponse> shared = Mono.defer(call)
+                    .doFinally(signal -> inFlight.remove(key, self.get()))
+                    .share();
+            self.set(shared);
+
+            Mono<PoseSugResponse> existing = inFlight.putIfAbsent(key, shared);
+            if (existing != null) {
+                coalesced.increment();
+                return existing.map(response -> response.withSessionId(sessionId));
+            }
+            return shared.map(response -> response.withSessionId(sessionId));
+        });
+    }
+
+    public int size() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.aicamerabackend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 每个会话只保留最新一帧的分析：新帧到达时，同会话仍在进行中的旧分析被取消
+ * （连同它的 9001 调用与 HTTP 连接），旧请求以 FrameSupersededException（409）结束。
+ * - 被取消的帧数：pose.frames.superseded
+ */
+@Component
+public class LatestFrameTracker {
+
+    private static final class Ticket {
+        private final Sinks.Empty<Void> signal = Sinks.empty();
+        private volatile boolean superseded;
+
+        private void supersede() {
+            superseded = true;
+            signal.tryEmitEmpty();
+        }
+    }
+
+    private final boolean enabled;
+    private final Map<String, Ticket> latest = new ConcurrentHashMap<>();
+    private final Counter supersededFrames;
+
+    public LatestFrameTracker(MeterRegistry meterRegistry,
+                              @Value("${ai.pose.latest-wins.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+        this.supersededFrames = Counter.builder("pose.frames.superseded")
+                .description("Frame analyses cancelled because a newer frame of the same session arrived")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 把 analysis 登记为该会话的最新一帧，并取消之前登记的那一帧。
+     */
+    public <T> Mono<T> latestWins(String sessionId, Mono<T> analysis) {
+        if (!enabled || sessionId == null) {
+            return analysis;
+        }
+        return Mono.defer(() -> {
+            Ticket ticket = new Ticket();
+            Ticket previous = latest.put(sessionId, ticket);
+            if (previous != null) {
+                previous.supersede();
+            }
+            return analysis
+                    .takeUntilOther(ticket.signal.asMono())
+                    .switchIfEmpty(Mono.defer(() -> {
+                        if (!ticket.superseded) {
+                            return Mono.empty();
+                        }
+                        supersededFrames.increment();
+                        return Mono.error(new FrameSupersededException(sessionId));
+                    }))
+                    .doFinally(signal -> latest.remove(sessionId, ticket));
+        });
+    }
+}
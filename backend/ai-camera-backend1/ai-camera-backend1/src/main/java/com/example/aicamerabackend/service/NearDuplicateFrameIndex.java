@@ -0,0 +1,90 @@
+package com.example.aicamerabackend.service;
+
+import com.example.aicamerabackend.dto.PoseSugResponse;
+import com.example.aicamerabackend.image.FrameImage;
+import com.example.aicamerabackend.image.PerceptualHash;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+
+/**
+ * 会话内近重复帧复用：同一 sessionId 的新帧与上一次真正分析过的帧 dHash 距离足够小、且意图和 meta 都没变时，
+ * 直接返回上一次的 PoseSugResponse，不再调用 9001。
+ * - 上一帧的指纹、意图和结果都存在 SessionStore 里，会话数和内存由它统一限制
+ * - 节省的上游调用数：pose.upstream.saved{reason=near-duplicate}
+ */
+@Component
+public class NearDuplicateFrameIndex {
+
+    private final boolean enabled;
+    private final int maxDistance;
+    private final SessionStore sessionStore;
+    private final Counter saved;
+    private final Scheduler decoder;
+
+    @Autowired
+    public NearDuplicateFrameIndex(MeterRegistry meterRegistry,
+                                   SessionStore sessionStore,
+                                   @Value("${ai.pose.dedupe.enabled:true}") boolean enabled,
+                                   @Value("${ai.pose.dedupe.max-hamming-distance:6}") int maxDistance) {
+        this(meterRegistry, sessionStore, enabled, maxDistance, Schedulers.parallel());
+    }
+
+    NearDuplicateFrameIndex(MeterRegistry meterRegistry, SessionStore sessionStore, boolean enabled, int maxDistance,
+                            Scheduler decoder) {
+        this.decoder = decoder;
+        this.enabled = enabled;
+        this.maxDistance = maxDistance;
+        this.sessionStore = sessionStore;
+        this.saved = Counter.builder("pose.upstream.saved")
+                .tag("reason", "near-duplicate")
+                .description("Upstream calls avoided by reusing a near-identical frame of the same session")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 计算 dHash（解码是 CPU 活，切到 parallel 调度器，不占 event loop）。无法解码或功能关闭时为空。
+     * 经 FrameImage.readOn 读取：解码期间自己持有一份 frame 引用，调用方取消（如被新帧取代）也不会提前归还分块。
+     */
+    public Mono<Long> fingerprint(FrameImage frame) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        return frame.readOn(decoder, NearDuplicateFrameIndex::dHash, hash -> { })
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    private static Long dHash(FrameImage frame) throws IOException {
+        try (ImageInputStream iis = frame.imageInputStream()) {
+            return PerceptualHash.dHash(iis);
+        }
+    }
+
+    /**
+     * 意图和 meta 取自精确缓存的 key（已规范化），与精确缓存的区分口径一致：换了意图或 meta 的相似帧不复用旧结果。
+     */
+    public PoseSugResponse findNearDuplicate(String sessionId, Long hash, FrameAnalysisCache.FrameKey key) {
+        if (hash == null) {
+            return null;
+        }
+        SessionState last = sessionStore.get(sessionId);
+        if (last == null
+                || last.fingerprint() == null
+                || last.latest() == null
+                || !last.lastIntent().equals(SessionStore.normalizeIntent(key.userIntent()))
+                || !last.lastMeta().equals(key.meta())
+                || PerceptualHash.distance(last.fingerprint(), hash) > maxDistance) {
+            return null;
+        }
+        saved.increment();
+        return sessionStore.decode(last.latest(), sessionId);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.aicamerabackend.service;
+
+import java.util.Arrays;
+
+/**
+ * 一个会话在 SessionStore 里的不可变快照；每次更新整体替换，Caffeine 随之重新计算权重。
+ * 最近的响应以 CBOR 字节保存（去掉 sessionId），比对象图小得多，也不会被其他请求意外改写。
+ */
+final class SessionState {
+
+    // 对象头、字段、数组头等固定开销的粗估（字节）
+    private static final int FIXED_OVERHEAD = 128;
+
+    private final byte[][] history;
+    private final long fingerprint;
+    private final boolean hasFingerprint;
+    private final String lastIntent;
+    private final String lastMeta;
+    private final long firstSeenMillis;
+    private final long lastSeenMillis;
+    private final int requests;
+    private final int lastLatencyMillis;
+    private final int avgLatencyMillis;
+
+    private SessionState(byte[][] history, long fingerprint, boolean hasFingerprint, String lastIntent, String lastMeta,
+                         long firstSeenMillis, long lastSeenMillis, int requests,
+                         int lastLatencyMillis, int avgLatencyMillis) {
+        this.history = history;
+        this.fingerprint = fingerprint;
+        this.hasFingerprint = hasFingerprint;
+        this.lastIntent = lastIntent;
+        this.lastMeta = lastMeta;
+        this.firstSeenMillis = firstSeenMillis;
+        this.lastSeenMillis = lastSeenMillis;
+        this.requests = requests;
+        this.lastLatencyMillis = lastLatencyMillis;
+        this.avgLatencyMillis = avgLatencyMillis;
+    }
+
+    static SessionState empty(long nowMillis) {
+        return new SessionState(new byte[0][], 0, false, "", "", nowMillis, nowMillis, 0, 0, 0);
+    }
+
+    /**
+     * 新的分析结果：放到历史最前面（最多保留 maxHistory 条）。
+     * 指纹总是跟着最新的响应一起替换：为 null（这一帧算不出 dHash）时清掉旧指纹，
+     * 否则旧帧的指纹会配上新帧的响应，近重复查找就会拿错答案。
+     */
+    SessionState withAnalysis(byte[] encoded, Long fingerprint, String intent, String meta, int maxHistory,
+                              long nowMillis, int latencyMillis) {
+        int size = Math.min(maxHistory, history.length + 1);
+        byte[][] next = new byte[size][];
+        next[0] = encoded;
+        System.arraycopy(history, 0, next, 1, size - 1);
+        return new SessionState(next,
+                fingerprint != null ? fingerprint : 0,
+                fingerprint != null,
+                intent, meta, firstSeenMillis, nowMillis, requests + 1, latencyMillis, ewma(latencyMillis));
+    }
+
+    /**
+     * 只更新时间统计（复用了上一次结果，没有新的分析）。
+     */
+    SessionState withRequest(long nowMillis, int latencyMillis) {
+        return new SessionState(history, fingerprint, hasFingerprint, lastIntent, lastMeta, firstSeenMillis, nowMillis,
+                requests + 1, latencyMillis, ewma(latencyMillis));
+    }
+
+    // 平滑系数 1/8，和 TCP 的 SRTT 一样
+    private int ewma(int latencyMillis) {
+        return requests == 0 ? latencyMillis : avgLatencyMillis + (latencyMillis - avgLatencyMillis) / 8;
+    }
+
+    int weight(String sessionId) {
+        int bytes = FIXED_OVERHEAD + 2 * sessionId.length() + 2 * lastIntent.length() + 2 * lastMeta.length() + 8 * history.length;
+        for (byte[] encoded : history) {
+            bytes += 16 + encoded.length;
+        }
+        return bytes;
+    }
+
+    byte[][] history() {
+        return Arrays.copyOf(history, history.length);
+    }
+
+    byte[] latest() {
+        return history.length == 0 ? null : history[0];
+    }
+
+    Long fingerprint() {
+        return hasFingerprint ? fingerprint : null;
+    }
+
+    String lastIntent() {
+        return lastIntent;
+    }
+
+    String lastMeta() {
+        return lastMeta;
+    }
+
+    SessionStore.Timings timings() {
+        return new SessionStore.Timings(firstSeenMillis, lastSeenMillis, requests, lastLatencyMillis, avgLatencyMillis);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.aicamerabackend.service;
+
+import com.example.aicamerabackend.dto.PoseSugResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import tools.jackson.dataformat.cbor.CBORMapper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内的会话状态：每个 sessionId 记最近 N 次 PoseSugResponse、上一帧指纹、上一次意图和请求耗时。
+ * - 按估算字节数（权重）限制总内存，超出预算时由 Caffeine 的 W-TinyLFU 淘汰：
+ *   大量只来一两次的短会话进不来或先被淘汰，不会挤掉活跃会话
+ * - 空闲超过 idle-ttl 的会话过期
+ * - 响应以 CBOR 字节保存，读的时候再解码
+ * - 指标：pose.session.count / pose.session.bytes（当前会话数 / 估算占用），
+ *   pose.session.evictions{cause=size|expired}，以及 cache.*{cache=session}
+ */
+@Component
+public class SessionStore {
+
+    // 时间取自单调时钟（Ticker，默认 System.nanoTime）换算的毫秒，只能相互比较，不是墙上时间
+    public record Timings(long firstSeenMillis, long lastSeenMillis, int requests,
+                          int lastLatencyMillis, int avgLatencyMillis) {
+    }
+
+    private final CBORMapper cborMapper;
+    private final int maxHistory;
+    private final Ticker ticker;
+    private final Cache<String, SessionState> sessions;
+
+    @Autowired
+    public SessionStore(MeterRegistry meterRegistry,
+                        CBORMapper cborMapper,
+                        @Value("${ai.pose.session.memory-budget:64MB}") DataSize memoryBudget,
+                        @Value("${ai.pose.session.history:3}") int maxHistory,
+                        @Value("${ai.pose.session.idle-ttl:2m}") Duration idleTtl) {
+        this(meterRegistry, cborMapper, memoryBudget, maxHistory, idleTtl, Ticker.systemTicker(), ForkJoinPool.commonPool());
+    }
+
+    SessionStore(MeterRegistry meterRegistry, CBORMapper cborMapper, DataSize memoryBudget, int maxHistory,
+                 Duration idleTtl, Ticker ticker, Executor executor) {
+        this.cborMapper = cborMapper;
+        this.maxHistory = Math.max(1, maxHistory);
+        this.ticker = ticker;
+        Counter evictedBySize = evictions(meterRegistry, "size");
+        Counter evictedByExpiry = evictions(meterRegistry, "expired");
+        this.sessions = Caffeine.newBuilder()
+                .maximumWeight(memoryBudget.toBytes())
+                .weigher((String sessionId, SessionState state) -> state.weight(sessionId))
+                .expireAfterAccess(idleTtl)
+                .ticker(ticker)
+                .executor(executor)
+                .evictionListener((String sessionId, SessionState state, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE) {
+                        evictedBySize.increment();
+                    } else if (cause == RemovalCause.EXPIRED) {
+                        evictedByExpiry.increment();
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, sessions, "session");
+        Gauge.builder("pose.session.count", sessions, Cache::estimatedSize)
+                .register(meterRegistry);
+        Gauge.builder("pose.session.bytes", this, SessionStore::weightedSize)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    private static Counter evictions(MeterRegistry meterRegistry, String cause) {
+        return Counter.builder("pose.session.evictions")
+                .tag("cause", cause)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次新的分析结果（9001 或结果缓存）。fingerprint 为 null（无法算 dHash）时清掉原指纹，指纹和最新响应总是对应同一帧。
+     * meta 传 FrameAnalysisCache.FrameKey 里规范化过的版本，近重复查找按它比较。
+     */
+    public void recordAnalysis(String sessionId, Long fingerprint, String userIntent, String meta,
+                               PoseSugResponse response, long elapsedNanos) {
+        byte[] encoded = cborMapper.writeValueAsBytes(response.withSessionId(null));
+        long now = nowMillis();
+        int latency = toMillis(elapsedNanos);
+        sessions.asMap().compute(sessionId, (id, state) -> (state != null ? state : SessionState.empty(now))
+                .withAnalysis(encoded, fingerprint, normalizeIntent(userIntent), meta == null ? "" : meta,
+                        maxHistory, now, latency));
+    }
+
+    /**
+     * 只记录一次请求（如复用了上一次结果），不改历史和指纹。
+     */
+    public void recordRequest(String sessionId, long elapsedNanos) {
+        long now = nowMillis();
+        int latency = toMillis(elapsedNanos);
+        sessions.asMap().compute(sessionId, (id, state) -> (state != null ? state : SessionState.empty(now))
+                .withRequest(now, latency));
+    }
+
+    public PoseSugResponse lastResponse(String sessionId) {
+        SessionState state = sessions.getIfPresent(sessionId);
+        return state == null ? null : decode(state.latest(), sessionId);
+    }
+
+    /**
+     * 最近的响应，新的在前。
+     */
+    public List<PoseSugResponse> recentResponses(String sessionId) {
+        SessionState state = sessions.getIfPresent(sessionId);
+        if (state == null) {
+            return List.of();
+        }
+        List<PoseSugResponse> responses = new ArrayList<>();
+        for (byte[] encoded : state.history()) {
+            responses.add(decode(encoded, sessionId));
+        }
+        return responses;
+    }
+
+    public Timings timings(String sessionId) {
+        SessionState state = sessions.getIfPresent(sessionId);
+        return state == null ? null : state.timings();
+    }
+
+    SessionState get(String sessionId) {
+        return sessions.getIfPresent(sessionId);
+    }
+
+    PoseSugResponse decode(byte[] encoded, String sessionId) {
+        if (encoded == null) {
+            return null;
+        }
+        return cborMapper.readValue(encoded, PoseSugResponse.class).withSessionId(sessionId);
+    }
+
+    public long size() {
+        sessions.cleanUp();
+        return sessions.estimatedSize();
+    }
+
+    public long weightedSize() {
+        return sessions.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L);
+    }
+
+    static String normalizeIntent(String userIntent) {
+        return userIntent == null ? "" : userIntent.strip();
+    }
+
+    private long nowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(ticker.read());
+    }
+
+    private static int toMillis(long nanos) {
+        return (int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.aicamerabackend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按 key 的令牌桶：每秒补 rate 个令牌，最多攒 burst 个。
+ * - 每个桶只有一个 AtomicLong（GCRA 的“理论到达时间”），取令牌是一次 CAS，不加锁，不同 key 互不影响
+ * - 桶放在 Caffeine 里按 maxKeys 限制数量；空闲到桶已补满的 key 自动过期，过期与“满桶”等价
+ */
+public class TokenBucketRateLimiter {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final Ticker ticker;
+    private final Cache<String, AtomicLong> buckets;
+
+    public TokenBucketRateLimiter(double ratePerSecond, int burst, long maxKeys) {
+        this(ratePerSecond, burst, maxKeys, Ticker.systemTicker());
+    }
+
+    TokenBucketRateLimiter(double ratePerSecond, int burst, long maxKeys, Ticker ticker) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("rate must be positive and burst at least 1");
+        }
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+        // 桶满时允许连续放行 burst 个：最后一个的理论到达时间比现在晚 burst 个间隔
+        this.toleranceNanos = intervalNanos * burst;
+        this.ticker = ticker;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(Duration.ofNanos(toleranceNanos))
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * 取一个令牌。
+     *
+     * @return 0 表示放行；否则是需要等待的纳秒数（到那时才会有令牌）
+     */
+    public long tryAcquire(String key) {
+        AtomicLong bucket = buckets.get(key, k -> new AtomicLong(Long.MIN_VALUE));
+        long now = ticker.read();
+        while (true) {
+            long theoreticalArrival = bucket.get();
+            long next = Math.max(theoreticalArrival, now) + intervalNanos;
+            long waitNanos = next - now - toleranceNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (bucket.compareAndSet(theoreticalArrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    public long size() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+}
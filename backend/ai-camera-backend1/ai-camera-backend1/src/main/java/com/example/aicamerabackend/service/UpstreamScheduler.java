@@ -0,0 +1,374 @@
+package com.example.aicamerabackend.service;
+
+import com.example.aicamerabackend.client.AdaptiveConcurrencyLimiter;
+import com.example.aicamerabackend.client.PoseUpstreamRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * GuidanceService 与 PoseAiClient 之间的调度：在途已满时请求在这里排队，有空位时按下面的规则取下一个。
+ * - 两个优先级：带 userIntent 的（语音触发，用户在等）为 INTERACTIVE，其余连续模式的帧为 BACKGROUND（由调用方决定）；
+ *   两类之间按权重做 deficit round robin，默认 4:1，后台帧不会被完全饿死
+ * - 同一类里每个会话一条队列，会话之间轮转，一个会话连发很多帧也只占自己那一份
+ * - 有界：每类总排队数、每个会话排队数都有上限，超出直接拒绝（上层回退 mock）；排队中被取消的请求直接出队
+ * - 在途上限跟随 AdaptiveConcurrencyLimiter 当前的 limit
+ * - 按类做 CoDel 式的过载判断：出队时的排队时长（sojourn）连续 interval 都高于 target，说明有常驻排队，
+ *   进入 shedding 状态。此时新请求不再入队、立即拒绝；队里已经等太久的按 CoDel 的节奏（间隔 interval/√n）丢弃。
+ *   排队时长回到 target 以下或队列排空即恢复。拒绝原因为 overload，response=unavailable 时改抛 FrameShedException（503）
+ * - 指标：pose.scheduler.queue.time{class}（排队时长）、pose.scheduler.queued{class}、
+ *   pose.scheduler.shedding{class}（1 表示正在丢弃）、pose.scheduler.rejected{class,reason}
+ */
+@Component
+public class UpstreamScheduler {
+
+    public enum Priority {
+        INTERACTIVE, BACKGROUND;
+
+        public static Priority of(String userIntent) {
+            return userIntent == null || userIntent.isBlank() ? BACKGROUND : INTERACTIVE;
+        }
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    static final String OVERLOAD = "overload";
+
+    private final IntSupplier concurrencyLimit;
+    private final int maxQueuedPerSession;
+    private final long targetNanos;
+    private final long intervalNanos;
+    private final boolean shedAsUnavailable;
+    private final LongSupplier nanoClock;
+    private final Map<Priority, ClassQueue> classes = new EnumMap<>(Priority.class);
+    private final AtomicInteger wip = new AtomicInteger();
+    private int running;
+    private Priority current = Priority.INTERACTIVE;
+
+    @Autowired
+    public UpstreamScheduler(MeterRegistry meterRegistry,
+                             AdaptiveConcurrencyLimiter concurrencyLimiter,
+                             @Value("${ai.pose.scheduler.interactive.weight:4}") int interactiveWeight,
+                             @Value("${ai.pose.scheduler.interactive.queue-capacity:256}") int interactiveCapacity,
+                             @Value("${ai.pose.scheduler.background.weight:1}") int backgroundWeight,
+                             @Value("${ai.pose.scheduler.background.queue-capacity:512}") int backgroundCapacity,
+                             @Value("${ai.pose.scheduler.max-queued-per-session:4}") int maxQueuedPerSession,
+                             @Value("${ai.pose.shed.target:100ms}") Duration target,
+                             @Value("${ai.pose.shed.interval:500ms}") Duration interval,
+                             @Value("${ai.pose.shed.response:mock}") String shedResponse) {
+        this(meterRegistry, concurrencyLimiter::getLimit, interactiveWeight, interactiveCapacity,
+                backgroundWeight, backgroundCapacity, maxQueuedPerSession, target, interval,
+                "unavailable".equalsIgnoreCase(shedResponse), System::nanoTime);
+    }
+
+    UpstreamScheduler(MeterRegistry meterRegistry, IntSupplier concurrencyLimit,
+                      int interactiveWeight, int interactiveCapacity,
+                      int backgroundWeight, int backgroundCapacity, int maxQueuedPerSession,
+                      Duration target, Duration interval, boolean shedAsUnavailable, LongSupplier nanoClock) {
+        this.concurrencyLimit = concurrencyLimit;
+        this.maxQueuedPerSession = Math.max(1, maxQueuedPerSession);
+        this.targetNanos = target.toNanos();
+        this.intervalNanos = interval.toNanos();
+        this.shedAsUnavailable = shedAsUnavailable;
+        this.nanoClock = nanoClock;
+        classes.put(Priority.INTERACTIVE, new ClassQueue(meterRegistry, Priority.INTERACTIVE, interactiveWeight, interactiveCapacity));
+        classes.put(Priority.BACKGROUND, new ClassQueue(meterRegistry, Priority.BACKGROUND, backgroundWeight, backgroundCapacity));
+    }
+
+    /**
+     * 排队执行 call。取消（如同会话来了新帧）时若还在排队就直接出队，已经开始就取消 call。
+     */
+    public <T> Mono<T> schedule(String sessionId, Priority priority, Supplier<Mono<T>> call) {
+        return Mono.create(sink -> {
+            Task<T> task = new Task<>(sessionId, classes.get(priority), call, sink);
+            sink.onCancel(task::cancel);
+            String rejected = offer(task);
+            if (rejected != null) {
+                task.reject(rejected);
+                return;
+            }
+            drain();
+        });
+    }
+
+    // 入队；被拒绝时返回原因（在锁外通知调用方）
+    private synchronized String offer(Task<?> task) {
+        ClassQueue queue = task.queue;
+        ArrayDeque<Task<?>> sessionQueue = queue.sessions.get(task.sessionId);
+        String reason = null;
+        if (queue.size == 0) {
+            // 没有常驻排队了（比如排队的都被取消），不再丢弃
+            queue.shedding = false;
+        }
+        if (queue.shedding) {
+            reason = OVERLOAD;
+        } else if (queue.size >= queue.capacity) {
+            reason = "queue-full";
+        } else if (sessionQueue != null && sessionQueue.size() >= maxQueuedPerSession) {
+            reason = "session-queue-full";
+        }
+        if (reason != null) {
+            return reason;
+        }
+        if (sessionQueue == null) {
+            sessionQueue = new ArrayDeque<>();
+            queue.sessions.put(task.sessionId, sessionQueue);
+            queue.activeSessions.addLast(task.sessionId);
+        }
+        sessionQueue.addLast(task);
+        queue.size++;
+        return null;
+    }
+
+    /*
+    同一时刻只有一个线程在出队（wip 计数做蹦床）：同步失败的调用（熔断打开、限流拒绝）会在 start() 里
+    经 doFinally → onFinished 再次进入 drain，这时只记一次 missed 就返回，由外层循环接着出队，
+    调用栈不会随排队任务数增长。
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Task<?> next;
+            while ((next = poll()) != null) {
+                if (next.shed) {
+                    next.reject(OVERLOAD);
+                } else {
+                    next.start();
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * 取下一个要执行的任务并占一个在途名额；没有空位或没有任务时返回 null。
+     * CoDel 判定要丢弃的任务标记为 shed 返回，不占名额。
+     * 两类之间：当前类的 deficit 用完（或没有任务）才换到另一类，换入时 deficit 加上该类的权重；
+     * 每个任务按 1 计，类内会话之间的 DRR 因此就是逐个轮转。
+     */
+    private synchronized Task<?> poll() {
+        if (running >= Math.max(1, concurrencyLimit.getAsInt())) {
+            return null;
+        }
+        for (int attempts = 0; attempts < 3; attempts++) {
+            ClassQueue queue = classes.get(current);
+            if (queue.size > 0 && queue.deficit > 0) {
+                queue.deficit--;
+                Task<?> task = queue.pollRoundRobin();
+                long now = nanoClock.getAsLong();
+                long sojourn = now - task.enqueuedAt;
+                queue.queueTime.record(sojourn, TimeUnit.NANOSECONDS);
+                task.shed = queue.shouldShed(now, sojourn);
+                if (!task.shed) {
+                    running++;
+                }
+                return task;
+            }
+            if (queue.size == 0) {
+                queue.deficit = 0;
+            }
+            current = current == Priority.INTERACTIVE ? Priority.BACKGROUND : Priority.INTERACTIVE;
+            ClassQueue other = classes.get(current);
+            if (other.size > 0) {
+                other.deficit += other.weight;
+            }
+        }
+        return null;
+    }
+
+    private synchronized void remove(Task<?> task) {
+        ArrayDeque<Task<?>> sessionQueue = task.queue.sessions.get(task.sessionId);
+        if (sessionQueue != null && sessionQueue.remove(task)) {
+            task.queue.size--;
+            if (sessionQueue.isEmpty()) {
+                task.queue.sessions.remove(task.sessionId);
+                task.queue.activeSessions.remove(task.sessionId);
+            }
+        }
+    }
+
+    private void onFinished() {
+        synchronized (this) {
+            running--;
+        }
+        drain();
+    }
+
+    public synchronized int queued(Priority priority) {
+        return classes.get(priority).size;
+    }
+
+    public synchronized boolean shedding(Priority priority) {
+        return classes.get(priority).shedding;
+    }
+
+    public synchronized int running() {
+        return running;
+    }
+
+    private final class ClassQueue {
+        final Priority priority;
+        final int weight;
+        final int capacity;
+        // 有任务的会话，按轮转顺序
+        final ArrayDeque<String> activeSessions = new ArrayDeque<>();
+        final Map<String, ArrayDeque<Task<?>>> sessions = new HashMap<>();
+        final Timer queueTime;
+        final MeterRegistry meterRegistry;
+        int size;
+        int deficit;
+        // CoDel 状态：firstAboveTime 为 0 表示排队时长低于 target
+        long firstAboveTime;
+        long dropNext;
+        int dropCount;
+        boolean shedding;
+
+        ClassQueue(MeterRegistry meterRegistry, Priority priority, int weight, int capacity) {
+            this.meterRegistry = meterRegistry;
+            this.priority = priority;
+            this.weight = Math.max(1, weight);
+            this.capacity = capacity;
+            this.deficit = this.weight;
+            this.queueTime = Timer.builder("pose.scheduler.queue.time")
+                    .tag("class", priority.tag())
+                    .description("Time a frame waited for an upstream slot")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            Gauge.builder("pose.scheduler.queued", UpstreamScheduler.this, scheduler -> scheduler.queued(priority))
+                    .tag("class", priority.tag())
+                    .register(meterRegistry);
+            Gauge.builder("pose.scheduler.shedding", UpstreamScheduler.this, scheduler -> scheduler.shedding(priority) ? 1 : 0)
+                    .tag("class", priority.tag())
+                    .register(meterRegistry);
+        }
+
+        /*
+        CoDel（RFC 8289）的出队判定，调用时刚取出一个排队了 sojourn 纳秒的任务：
+        - 排队时长低于 target 或队列已空：没有常驻排队，退出丢弃状态
+        - 持续高于 target 满一个 interval：进入丢弃状态并丢掉这一个，之后每隔 interval/√dropCount 再丢一个
+         */
+        boolean shouldShed(long now, long sojourn) {
+            boolean okToDrop = false;
+            if (sojourn < targetNanos || size == 0) {
+                firstAboveTime = 0;
+            } else if (firstAboveTime == 0) {
+                firstAboveTime = now + intervalNanos;
+            } else {
+                okToDrop = now - firstAboveTime >= 0;
+            }
+
+            if (shedding) {
+                if (!okToDrop) {
+                    shedding = false;
+                    return false;
+                }
+                if (now - dropNext >= 0) {
+                    dropCount++;
+                    dropNext = controlLaw(dropNext);
+                    return true;
+                }
+                return false;
+            }
+            if (okToDrop) {
+                shedding = true;
+                // 刚退出不久又进入时，沿用上一轮的丢弃频率
+                dropCount = dropCount > 2 && now - dropNext < 8 * intervalNanos ? dropCount - 2 : 1;
+                dropNext = controlLaw(now);
+                return true;
+            }
+            return false;
+        }
+
+        long controlLaw(long from) {
+            return from + (long) (intervalNanos / Math.sqrt(dropCount));
+        }
+
+        Counter rejected(String reason) {
+            return Counter.builder("pose.scheduler.rejected")
+                    .tag("class", priority.tag())
+                    .tag("reason", reason)
+                    .register(meterRegistry);
+        }
+
+        // 队首会话出一个任务，还有剩余就排到队尾
+        Task<?> pollRoundRobin() {
+            String sessionId = activeSessions.pollFirst();
+            ArrayDeque<Task<?>> sessionQueue = sessions.get(sessionId);
+            Task<?> task = sessionQueue.pollFirst();
+            size--;
+            if (sessionQueue.isEmpty()) {
+                sessions.remove(sessionId);
+            } else {
+                activeSessions.addLast(sessionId);
+            }
+            return task;
+        }
+    }
+
+    private final class Task<T> {
+        final String sessionId;
+        final ClassQueue queue;
+        final Supplier<Mono<T>> call;
+        final MonoSink<T> sink;
+        final long enqueuedAt = nanoClock.getAsLong();
+        boolean shed;
+        // 取消时 dispose；之后再 update 进来的订阅会被立即取消
+        final Disposable.Swap subscription = Disposables.swap();
+
+        Task(String sessionId, ClassQueue queue, Supplier<Mono<T>> call, MonoSink<T> sink) {
+            this.sessionId = sessionId;
+            this.queue = queue;
+            this.call = call;
+            this.sink = sink;
+        }
+
+        // 已占在途名额：无论结果如何都要恰好调用一次 onFinished
+        void start() {
+            if (subscription.isDisposed()) {
+                onFinished();
+                return;
+            }
+            subscription.update(Mono.defer(call)
+                    .doFinally(signal -> onFinished())
+                    .subscribe(sink::success, sink::error, sink::success));
+        }
+
+        void reject(String reason) {
+            queue.rejected(reason).increment();
+            if (OVERLOAD.equals(reason) && shedAsUnavailable) {
+                sink.error(new FrameShedException(sessionId));
+            } else {
+                sink.error(new PoseUpstreamRejectedException(reason));
+            }
+        }
+
+        void cancel() {
+            remove(this);
+            subscription.dispose();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.aicamerabackend.service;
+
+import com.example.aicamerabackend.client.WriteAiClient;
+import com.example.aicamerabackend.image.FrameImage;
+import com.example.aicamerabackend.image.ImageNormalizer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * AI 成文（/ai/write）：多张照片 + requirement JSON，返回若干条备选文案。
+ * - 照片边接收边在 ImageNormalizer 的有界 CPU 线程池上并行规范化（摆正、缩小、去 EXIF、重新编码），
+ *   9 张照片的耗时约为最慢一张而不是 9 张之和
+ * - 整个请求（预处理 + 9001）有一个截止时间；到点时已经拿到的文案照常返回，其余放弃
+ * - 9001 一次返回全部文案。parallel-candidates 打开时改为并发发出 N 次调用、第 i 次只取第 i 条，
+ *   每条一到就推给客户端，首条文案的等待时间降到最快那次调用，代价是 N 倍的大模型调用
+ * - 指标：write.preprocess（全部照片规范化完成的耗时）、write.candidate.latency（请求开始到每条文案到达）、
+ *   write.requests{outcome=complete|partial|empty|failed}
+ */
+@Slf4j
+@Service
+public class WriteService {
+
+    public record Candidate(int index, String content) {
+    }
+
+    private final WriteAiClient writeAiClient;
+    private final ImageNormalizer imageNormalizer;
+    private final JsonMapper jsonMapper;
+    private final MeterRegistry meterRegistry;
+    private final int targetLongEdge;
+    private final int maxImages;
+    private final int candidates;
+    private final boolean parallelCandidates;
+    private final Duration deadline;
+    private final Timer preprocessTimer;
+    private final Timer candidateTimer;
+
+    public WriteService(WriteAiClient writeAiClient,
+                        ImageNormalizer imageNormalizer,
+                        JsonMapper jsonMapper,
+                        MeterRegistry meterRegistry,
+                        @Value("${ai.write.preprocess.target-long-edge:1280}") int targetLongEdge,
+                        @Value("${ai.write.max-images:9}") int maxImages,
+                        @Value("${ai.write.candidates:3}") int candidates,
+                        @Value("${ai.write.parallel-candidates:false}") boolean parallelCandidates,
+                        @Value("${ai.write.deadline:30s}") Duration deadline) {
+        this.writeAiClient = writeAiClient;
+        this.imageNormalizer = imageNormalizer;
+        this.jsonMapper = jsonMapper;
+        this.meterRegistry = meterRegistry;
+        this.targetLongEdge = targetLongEdge;
+        this.maxImages = maxImages;
+        this.candidates = candidates;
+        this.parallelCandidates = parallelCandidates;
+        this.deadline = deadline;
+        this.preprocessTimer = Timer.builder("write.preprocess")
+                .description("Time to normalize all photos of one /ai/write request")
+                .register(meterRegistry);
+        this.candidateTimer = Timer.builder("write.candidate.latency")
+                .description("Time from request start until each caption arrives")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public int candidates() {
+        return candidates;
+    }
+
+    /**
+     * 文案按到达顺序发出；截止时间到达时正常结束（可能少于 candidates 条）。
+     * 参数错误（没有照片、照片过多、requirement 不是 JSON 对象）以 IllegalArgumentException 结束；
+     * 一条文案都没拿到且 9001 报错时以该错误结束。
+     */
+    public Flux<Candidate> write(Flux<FilePart> images, String sessionId, String requirement) {
+        return Flux.defer(() -> {
+            validateRequirement(requirement);
+            long start = System.nanoTime();
+            Flux<Candidate> result = Flux.usingWhen(
+                    preprocess(images),
+                    frames -> call(frames, sessionId, requirement),
+                    frames -> Mono.fromRunnable(() -> frames.forEach(FrameImage::release)))
+                    .doOnNext(candidate -> candidateTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .take(deadline);
+            return countOutcome(result, sessionId);
+        });
+    }
+
+    /**
+     * 每张照片收完即提交到规范化线程池，多张并行；结果按上传顺序排列。
+     * 中途失败或被取消时，已经规范化好的照片由 doOnDiscard 释放。
+     * 截止时间到或另一张照片出错时，这里会立刻 release 原图，而工作线程可能还在解码它：
+     * ImageNormalizer.normalize 自己持有一份原图引用直到读完，取消之后才算出的结果也由它释放。
+     */
+    private Mono<List<FrameImage>> preprocess(Flux<FilePart> images) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return images
+                    .index()
+                    .flatMapSequential(indexed -> {
+                        if (indexed.getT1() >= maxImages) {
+                            return Mono.error(new IllegalArgumentException("at most " + maxImages + " images are allowed"));
+                        }
+                        FilePart part = indexed.getT2();
+                        return Mono.usingWhen(
+                                FrameImage.receive(part.content(), part.filename()),
+                                original -> imageNormalizer.normalize(original, targetLongEdge),
+                                original -> Mono.fromRunnable(original::release));
+                    }, Math.max(1, maxImages))
+                    .collectList()
+                    .flatMap(frames -> frames.isEmpty()
+                            ? Mono.error(new IllegalArgumentException("image is required"))
+                            : Mono.just(frames))
+                    .doOnNext(frames -> preprocessTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .doOnDiscard(FrameImage.class, FrameImage::release);
+        });
+    }
+
+    private Flux<Candidate> call(List<FrameImage> frames, String sessionId, String requirement) {
+        if (!parallelCandidates) {
+            return writeAiClient.write(frames, sessionId, requirement)
+                    .flatMapMany(contents -> Flux.range(0, Math.min(candidates, contents.size()))
+                            .map(i -> new Candidate(i, contents.get(i))));
+        }
+        // 每次调用都返回整组文案，第 i 次只取第 i 条（9001 的提示词里每个位置对应一个不同的切入点）
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        return Flux.range(0, candidates)
+                .flatMap(i -> writeAiClient.write(frames, sessionId, requirement)
+                        .flatMap(contents -> i < contents.size() ? Mono.just(new Candidate(i, contents.get(i))) : Mono.empty())
+                        .onErrorResume(e -> {
+                            log.atWarn().setMessage("ai write call failed")
+                                    .addKeyValue("sessionId", sessionId)
+                                    .addKeyValue("candidate", i)
+                                    .addKeyValue("reason", e.getMessage())
+                                    .log();
+                            failure.compareAndSet(null, e);
+                            return Mono.empty();
+                        }))
+                .switchIfEmpty(Flux.defer(() -> failure.get() == null ? Flux.empty() : Flux.error(failure.get())));
+    }
+
+    private Flux<Candidate> countOutcome(Flux<Candidate> result, String sessionId) {
+        int[] count = {0};
+        return result
+                .doOnNext(candidate -> count[0]++)
+                .doOnComplete(() -> {
+                    String outcome = count[0] >= candidates ? "complete" : count[0] > 0 ? "partial" : "empty";
+                    outcome(outcome).increment();
+                    log.atInfo().setMessage("ai write finished")
+                            .addKeyValue("sessionId", sessionId)
+                            .addKeyValue("candidates", count[0])
+                            .addKeyValue("outcome", outcome)
+                            .log();
+                })
+                .doOnError(e -> outcome("failed").increment());
+    }
+
+    private Counter outcome(String outcome) {
+        return Counter.builder("write.requests")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private void validateRequirement(String requirement) {
+        if (requirement == null || requirement.isBlank()) {
+            return;
+        }
+        JsonNode node;
+        try {
+            node = jsonMapper.readTree(requirement);
+        } catch (JacksonException e) {
+            throw new IllegalArgumentException("requirement must be a JSON object");
+        }
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("requirement must be a JSON object");
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.aicamerabackend.client;
+
+import com.example.aicamerabackend.image.FrameBufferPool;
+import com.example.aicamerabackend.image.FrameImage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class PoseAiClientTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void fastPrimaryFailureIsNotHeldUntilTheHedgeDelay() {
+        PoseAiClient client = client(Duration.ZERO, Duration.ofSeconds(2), 100);
+
+        long start = System.nanoTime();
+        Throwable error = catchThrowable(() -> client.poseSug(frame(), "s1", null, null).block());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(error.getCause()).isInstanceOf(WebClientResponseException.InternalServerError.class);
+        assertThat(elapsedMillis).isLessThan(1000);
+        assertThat(calls).hasValue(1);
+        assertThat(meterRegistry.counter("pose.upstream.hedge", "outcome", "sent").count()).isZero();
+    }
+
+    @Test
+    void skippedHedgeReportsThePrimaryError() {
+        // 预算为 0：到了对冲时刻也发不出第二份，只能等主请求
+        PoseAiClient client = client(Duration.ofMillis(300), Duration.ofMillis(50), 0);
+
+        Throwable error = catchThrowable(() -> client.poseSug(frame(), "s1", null, null).block());
+
+        assertThat(error.getCause()).isInstanceOf(WebClientResponseException.InternalServerError.class);
+        assertThat(calls).hasValue(1);
+        assertThat(meterRegistry.counter("pose.upstream.hedge", "outcome", "skipped").count()).isEqualTo(1);
+    }
+
+    /**
+     * 两个副本，都在 failAfter 之后返回 500。
+     */
+    private PoseAiClient client(Duration failAfter, Duration hedgeDelay, double budgetPercent) {
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> Mono.delay(failAfter)
+                        .doOnSubscribe(s -> calls.incrementAndGet())
+                        .map(tick -> ClientResponse.create(HttpStatus.INTERNAL_SERVER_ERROR).build()))
+                .build();
+        PoseAiClient client = new PoseAiClient(
+                webClient,
+                new PoseCircuitBreaker(meterRegistry, 50, 20, 10, Duration.ofSeconds(5), 3),
+                new AdaptiveConcurrencyLimiter(meterRegistry, 20, 2, 500, Duration.ofSeconds(2), 0.9),
+                new PoseUpstreamBalancer(meterRegistry, "http://a,http://b", Duration.ofSeconds(10), 3,
+                        Duration.ofSeconds(10), Duration.ofMinutes(2), Duration.ofSeconds(3)),
+                new HedgingPolicy(meterRegistry, true, 0.95, Duration.ofMillis(50), hedgeDelay, 1000,
+                        budgetPercent, 20),
+                new FrameBufferPool(meterRegistry, 1, false));
+        ReflectionTestUtils.setField(client, "timeout", Duration.ofSeconds(3));
+        return client;
+    }
+
+    private static FrameImage frame() {
+        NettyDataBufferFactory factory = new NettyDataBufferFactory(Unpooled.buffer().alloc());
+        return FrameImage.receive(Flux.just(factory.wrap(new byte[]{1, 2, 3})), "f.jpg").block();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.aicamerabackend.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FrameRateLimitFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void channelHandshakeIsLimitedByClientAddress() {
+        // IP 桶容量 2、几乎不补充
+        FrameRateLimitFilter filter = new FrameRateLimitFilter(
+                new FrameRateLimiter(meterRegistry, true, 1000, 1000, 0.001, 2, 100));
+        AtomicInteger upgraded = new AtomicInteger();
+
+        HttpStatus[] statuses = new HttpStatus[3];
+        MockServerWebExchange rejected = null;
+        for (int i = 0; i < statuses.length; i++) {
+            MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+                    .get("/ws/frames?sessionId=s" + i)
+                    .remoteAddress(new InetSocketAddress("10.0.0.1", 40000 + i)));
+            filter.filter(exchange, e -> Mono.fromRunnable(upgraded::incrementAndGet)).block();
+            statuses[i] = (HttpStatus) exchange.getResponse().getStatusCode();
+            rejected = exchange;
+        }
+
+        assertThat(upgraded).hasValue(2);
+        assertThat(statuses[2]).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isNotNull();
+        assertThat(meterRegistry.counter("pose.ratelimit.rejected", "key", "client").count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.aicamerabackend.controller;
+
+import com.example.aicamerabackend.dto.PoseSugResponse;
+import com.example.aicamerabackend.service.FrameAnalysis;
+import com.example.aicamerabackend.service.GuidanceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.socket.HandshakeInfo;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FrameWebSocketHandlerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    @Test
+    void framesBeyondTheSessionRateAreRejectedWithTheirSeq() {
+        GuidanceService guidanceService = mock(GuidanceService.class);
+        when(guidanceService.analyzeFrame(any(), anyString(), any(), any()))
+                .thenReturn(Mono.just(new FrameAnalysis(new PoseSugResponse("s1", "u", "g", "v", List.of()), null)));
+        // 会话桶容量 2、几乎不补充：5 帧里只有前 2 帧被分析
+        FrameRateLimiter rateLimiter = new FrameRateLimiter(meterRegistry, true, 0.001, 2, 1000, 1000, 100);
+        FrameWebSocketHandler handler = new FrameWebSocketHandler(guidanceService, jsonMapper,
+                rateLimiter, meterRegistry);
+
+        List<String> sent = new CopyOnWriteArrayList<>();
+        WebSocketSession session = session(Flux.fromStream(IntStream.range(0, 5).mapToObj(this::frame)), sent);
+        handler.handle(session).block();
+
+        verify(guidanceService, times(2)).analyzeFrame(any(), eq("s1"), any(), any());
+        assertThat(sent).hasSize(6);
+        assertThat(sent.get(0)).contains("\"type\":\"hello\"");
+        List<JsonNode> replies = sent.subList(1, sent.size()).stream().map(jsonMapper::readTree).toList();
+        assertThat(replies).filteredOn(reply -> reply.get("type").asString().equals("result"))
+                .extracting(reply -> reply.get("seq").asLong())
+                .containsExactly(0L, 1L);
+        // 被限流的帧各回一条带 seq 的错误，客户端靠它释放在途名额
+        assertThat(replies).filteredOn(reply -> reply.path("message").asString("").equals("rate-limited"))
+                .extracting(reply -> reply.get("seq").asLong())
+                .containsExactlyInAnyOrder(2L, 3L, 4L);
+        assertThat(meterRegistry.counter("pose.ratelimit.rejected", "key", "session").count()).isEqualTo(3);
+    }
+
+    private WebSocketMessage frame(int seq) {
+        ByteBuffer bytes = ByteBuffer.allocate(FrameChannelFrame.HEADER_SIZE + 3)
+                .put((byte) FrameChannelFrame.VERSION)
+                .putInt(seq)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .put(new byte[]{1, 2, 3})
+                .flip();
+        return new WebSocketMessage(WebSocketMessage.Type.BINARY, bufferFactory.wrap(bytes));
+    }
+
+    @SuppressWarnings("unchecked")
+    private WebSocketSession session(Flux<WebSocketMessage> inbound, List<String> sent) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getHandshakeInfo()).thenReturn(new HandshakeInfo(
+                URI.create("ws://localhost/ws/frames?sessionId=s1"), new HttpHeaders(), Mono.empty(), null));
+        when(session.receive()).thenReturn(inbound);
+        when(session.textMessage(anyString())).thenAnswer(invocation -> {
+            DataBuffer payload = bufferFactory.wrap(invocation.<String>getArgument(0).getBytes());
+            return new WebSocketMessage(WebSocketMessage.Type.TEXT, payload);
+        });
+        when(session.send(any())).thenAnswer(invocation -> Flux.from((Publisher<WebSocketMessage>) invocation.getArgument(0))
+                .doOnNext(message -> sent.add(message.getPayloadAsText()))
+                .then());
+        return session;
+    }
+}
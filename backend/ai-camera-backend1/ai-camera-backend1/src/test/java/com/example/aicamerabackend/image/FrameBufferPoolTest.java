@@ -0,0 +1,108 @@
+package com.example.aicamerabackend.image;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FrameBufferPoolTest {
+
+    // 关掉线程缓存：release 立刻回到 arena，占用计数才能精确归零
+    private final FrameBufferPool pool = new FrameBufferPool(new SimpleMeterRegistry(), 1, false);
+
+    @Test
+    void normalizedFrameReturnsItsBufferToThePool() throws IOException {
+        ImageNormalizer normalizer = new ImageNormalizer(new SimpleMeterRegistry(), pool, true, 640, 0.85f, 1, 4);
+        FrameImage original = FrameImage.receive(chunked(jpeg(1600, 1200), 7000), "big.png").block();
+
+        FrameImage normalized = normalizer.normalize(original).block();
+
+        assertThat(normalized).isNotSameAs(original);
+        assertThat(normalized.filename()).isEqualTo("big.jpg");
+        BufferedImage decoded = ImageIO.read(normalized.inputStream());
+        assertThat(Math.max(decoded.getWidth(), decoded.getHeight())).isEqualTo(640);
+        assertThat(pool.activeAllocations()).isPositive();
+
+        normalized.release();
+        original.release();
+        assertThat(pool.activeAllocations()).isZero();
+    }
+
+    @Test
+    void unreleasedFrameShowsUpAsActiveAllocation() throws IOException {
+        ImageNormalizer normalizer = new ImageNormalizer(new SimpleMeterRegistry(), pool, true, 640, 0.85f, 1, 4);
+        FrameImage original = FrameImage.receive(Flux.just(wrap(jpeg(1600, 1200))), "big.jpg").block();
+
+        FrameImage normalized = normalizer.normalize(original).block();
+        original.release();
+
+        assertThat(pool.activeAllocations()).isEqualTo(1);
+        normalized.release();
+        assertThat(pool.activeAllocations()).isZero();
+    }
+
+    @Test
+    void imageInputStreamReadsAcrossChunks() throws IOException {
+        byte[] bytes = jpeg(800, 600);
+        FrameImage frame = FrameImage.receive(chunked(bytes, 1000), "f.jpg").block();
+
+        try (ImageInputStream iis = frame.imageInputStream()) {
+            assertThat(iis.length()).isEqualTo(bytes.length);
+            byte[] all = new byte[bytes.length];
+            iis.readFully(all);
+            assertThat(all).isEqualTo(bytes);
+
+            iis.seek(bytes.length - 1500);
+            byte[] tail = new byte[1500];
+            iis.readFully(tail);
+            assertThat(tail).isEqualTo(Arrays.copyOfRange(bytes, bytes.length - 1500, bytes.length));
+        }
+        try (ImageInputStream iis = frame.imageInputStream()) {
+            assertThat(PerceptualHash.dHash(iis)).isEqualTo(PerceptualHash.dHash(new ByteArrayInputStream(bytes)));
+        }
+        frame.release();
+    }
+
+    private static Flux<DataBuffer> chunked(byte[] bytes, int chunkSize) {
+        List<DataBuffer> chunks = new ArrayList<>();
+        for (int off = 0; off < bytes.length; off += chunkSize) {
+            chunks.add(wrap(Arrays.copyOfRange(bytes, off, Math.min(bytes.length, off + chunkSize))));
+        }
+        return Flux.fromIterable(chunks);
+    }
+
+    private static DataBuffer wrap(byte[] bytes) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(bytes);
+    }
+
+    private static byte[] jpeg(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(Color.DARK_GRAY);
+            g.fillRect(0, 0, width, height);
+            g.setColor(Color.ORANGE);
+            g.fillOval(width / 4, height / 4, width / 2, height / 2);
+        } finally {
+            g.dispose();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.aicamerabackend.image;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FrameImageTest {
+
+    private final Scheduler worker = Schedulers.newSingle("read-test");
+    private final ByteBuf chunk = Unpooled.directBuffer().writeBytes(new byte[]{1, 2, 3});
+    private final FrameImage frame = FrameImage.receive(
+            Flux.just(new NettyDataBufferFactory(chunk.alloc()).wrap(chunk)), "f.jpg").block();
+
+    @AfterEach
+    void tearDown() {
+        worker.dispose();
+    }
+
+    @Test
+    void cancelWhileReadingKeepsChunksUntilTheReadEnds() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        int[] refCntWhileReading = {-1};
+        List<String> discarded = new CopyOnWriteArrayList<>();
+
+        Disposable subscription = frame.readOn(worker, f -> {
+            entered.countDown();
+            proceed.await(5, TimeUnit.SECONDS);
+            refCntWhileReading[0] = chunk.refCnt();
+            return "late";
+        }, discarded::add).subscribe();
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        subscription.dispose();
+        frame.release();
+        assertThat(chunk.refCnt()).isEqualTo(1);
+
+        proceed.countDown();
+        // 读完由工作线程释放；取消之后读出的结果交给 discardLate
+        await(() -> chunk.refCnt() == 0 && !discarded.isEmpty());
+        assertThat(refCntWhileReading[0]).isEqualTo(1);
+        assertThat(discarded).containsExactly("late");
+    }
+
+    @Test
+    void cancelWhileQueuedReleasesImmediately() throws Exception {
+        CountDownLatch proceed = new CountDownLatch(1);
+        worker.schedule(() -> {
+            try {
+                proceed.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        frame.readOn(worker, f -> "never", value -> { }).subscribe().dispose();
+        frame.release();
+
+        assertThat(chunk.refCnt()).isZero();
+        proceed.countDown();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
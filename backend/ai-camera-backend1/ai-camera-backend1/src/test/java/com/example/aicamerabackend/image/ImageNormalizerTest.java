@@ -0,0 +1,100 @@
+package com.example.aicamerabackend.image;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageNormalizerTest {
+
+    private final FrameBufferPool pool = new FrameBufferPool(new SimpleMeterRegistry(), 1, false);
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch proceed = new CountDownLatch(1);
+    private volatile int refCntWhileReading = -1;
+    private final ByteBuf chunk = Unpooled.directBuffer();
+
+    // 单线程、读取前挂起，直到测试放行；放行时记下入站分块的引用计数
+    private final ImageNormalizer normalizer = new ImageNormalizer(new SimpleMeterRegistry(), pool, true, 640, 0.85f, 1, 4) {
+        @Override
+        FrameImage normalizeBlocking(FrameImage frame, int targetLongEdge) throws IOException {
+            entered.countDown();
+            try {
+                proceed.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            refCntWhileReading = chunk.refCnt();
+            return super.normalizeBlocking(frame, targetLongEdge);
+        }
+    };
+
+    @Test
+    void cancelWhileDecodingKeepsSourceAliveUntilReadFinishes() throws Exception {
+        FrameImage original = receive(chunk);
+        Disposable subscription = normalizer.normalize(original).subscribe();
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // 调用方取消并释放自己的引用（相当于 latest-wins 取消后外层 usingWhen 的清理）
+        subscription.dispose();
+        original.release();
+        assertThat(chunk.refCnt()).isEqualTo(1);
+
+        proceed.countDown();
+        await(() -> chunk.refCnt() == 0);
+        assertThat(refCntWhileReading).isEqualTo(1);
+        // 取消后才算出的结果由工作线程归还
+        await(() -> pool.activeAllocations() == 0);
+    }
+
+    @Test
+    void cancelWhileQueuedReleasesImmediately() throws Exception {
+        FrameImage busy = receive(chunk);
+        Disposable running = normalizer.normalize(busy).subscribe();
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        ByteBuf queuedChunk = Unpooled.directBuffer();
+        FrameImage queued = receive(queuedChunk);
+        normalizer.normalize(queued).subscribe().dispose();
+        queued.release();
+        assertThat(queuedChunk.refCnt()).isZero();
+
+        running.dispose();
+        busy.release();
+        proceed.countDown();
+        await(() -> chunk.refCnt() == 0);
+    }
+
+    private static FrameImage receive(ByteBuf buffer) throws IOException {
+        buffer.writeBytes(jpeg(1600, 1200));
+        NettyDataBufferFactory factory = new NettyDataBufferFactory(buffer.alloc());
+        return FrameImage.receive(Flux.just(factory.wrap(buffer)), "big.jpg").block();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private static byte[] jpeg(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.aicamerabackend.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventRingTest {
+
+    @Test
+    void offerFailsInsteadOfBlockingWhenFull() {
+        EventRing<Integer> ring = new EventRing<>(4);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(ring.offer(i)).isTrue();
+        }
+        assertThat(ring.offer(4)).isFalse();
+
+        assertThat(ring.poll()).isZero();
+        assertThat(ring.offer(4)).isTrue();
+        assertThat(ring.size()).isEqualTo(4);
+    }
+
+    @Test
+    void concurrentProducersNeverLoseOrDuplicateAcceptedElements() throws InterruptedException {
+        EventRing<Integer> ring = new EventRing<>(1024);
+        int producers = 4;
+        int perProducer = 20_000;
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    if (ring.offer(base + i)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+
+        Set<Integer> seen = new HashSet<>();
+        while (done.getCount() > 0 || ring.size() > 0) {
+            Integer element = ring.poll();
+            if (element != null) {
+                assertThat(seen.add(element)).isTrue();
+            }
+        }
+
+        assertThat(seen).hasSize(accepted.get());
+    }
+}
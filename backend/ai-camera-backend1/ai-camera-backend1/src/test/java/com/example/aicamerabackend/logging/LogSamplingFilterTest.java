@@ -0,0 +1,28 @@
+package com.example.aicamerabackend.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogSamplingFilterTest {
+
+    private final LoggerContext context = new LoggerContext();
+
+    @Test
+    void warnAndErrorAreNeverSampledOut() {
+        LogSamplingFilter filter = new LogSamplingFilter();
+        filter.setRates("com.example.aicamerabackend.controller.FrameController=0");
+        Logger logger = context.getLogger("com.example.aicamerabackend.controller.FrameController");
+        Logger other = context.getLogger("com.example.aicamerabackend.controller.WriteController");
+
+        assertThat(filter.decide(null, logger, Level.INFO, "frame received", null, null)).isEqualTo(FilterReply.DENY);
+        assertThat(filter.decide(null, logger, Level.WARN, "slow upstream", null, null)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.decide(null, logger, Level.ERROR, "failed", null, null)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.decide(null, other, Level.INFO, "write", null, null)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.getSampledOut()).isEqualTo(1);
+    }
+}
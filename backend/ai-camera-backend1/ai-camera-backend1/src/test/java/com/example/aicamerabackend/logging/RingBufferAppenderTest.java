@@ -0,0 +1,67 @@
+package com.example.aicamerabackend.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RingBufferAppenderTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private final ListAppender<ILoggingEvent> sink = new ListAppender<>();
+    private final RingBufferAppender appender = new RingBufferAppender();
+
+    @AfterEach
+    void tearDown() {
+        appender.stop();
+    }
+
+    @Test
+    void idleWorkerParksAndWakesUpOnTheNextEvent() throws InterruptedException {
+        context.setMDCAdapter(new LogbackMDCAdapter());
+        sink.setContext(context);
+        sink.start();
+        appender.setContext(context);
+        appender.setName("test");
+        appender.addAppender(sink);
+        appender.start();
+
+        Thread worker = Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals("log-ring-test"))
+                .findFirst()
+                .orElseThrow();
+        // 缓冲为空时写出线程无限期 park，而不是按固定间隔醒来轮询
+        await(() -> LockSupport.getBlocker(worker) == appender && worker.getState() == Thread.State.WAITING);
+
+        for (int i = 0; i < 3; i++) {
+            appender.doAppend(event("frame " + i));
+            int expected = i + 1;
+            await(() -> sink.list.size() == expected);
+            await(() -> worker.getState() == Thread.State.WAITING);
+        }
+        assertThat(sink.list).extracting(ILoggingEvent::getFormattedMessage)
+                .containsExactly("frame 0", "frame 1", "frame 2");
+    }
+
+    private LoggingEvent event(String message) {
+        return new LoggingEvent(RingBufferAppenderTest.class.getName(), context.getLogger("test"), Level.INFO,
+                message, null, null);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+}
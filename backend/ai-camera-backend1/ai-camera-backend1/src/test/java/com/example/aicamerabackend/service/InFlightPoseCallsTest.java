@@ -0,0 +1,72 @@
+package com.example.aicamerabackend.service;
+
+import com.example.aicamerabackend.dto.PoseSugResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InFlightPoseCallsTest {
+
+    private final FrameAnalysisCache.FrameKey key = new FrameAnalysisCache.FrameKey("abc", "", "");
+
+    @Test
+    void concurrentIdenticalRequestsShareOneUpstreamCall() {
+        InFlightPoseCalls calls = new InFlightPoseCalls(new SimpleMeterRegistry());
+        Sinks.One<PoseSugResponse> upstream = Sinks.one();
+        AtomicInteger subscriptions = new AtomicInteger();
+        AtomicReference<PoseSugResponse> first = new AtomicReference<>();
+        AtomicReference<PoseSugResponse> second = new AtomicReference<>();
+
+        calls.execute(key, "s1", () -> upstream.asMono().doOnSubscribe(s -> subscriptions.incrementAndGet()))
+                .subscribe(first::set);
+        calls.execute(key, "s2", () -> upstream.asMono().doOnSubscribe(s -> subscriptions.incrementAndGet()))
+                .subscribe(second::set);
+        upstream.tryEmitValue(new PoseSugResponse("upstream", "u", "g", "v", List.of()));
+
+        assertThat(subscriptions).hasValue(1);
+        assertThat(first.get().getSessionId()).isEqualTo("s1");
+        assertThat(second.get().getSessionId()).isEqualTo("s2");
+        assertThat(calls.size()).isZero();
+    }
+
+    @Test
+    void cancellingOneWaiterKeepsTheSharedCallAlive() {
+        InFlightPoseCalls calls = new InFlightPoseCalls(new SimpleMeterRegistry());
+        Sinks.One<PoseSugResponse> upstream = Sinks.one();
+        AtomicInteger cancels = new AtomicInteger();
+        AtomicReference<PoseSugResponse> survivor = new AtomicReference<>();
+
+        Disposable quitter = calls.execute(key, "s1", () -> upstream.asMono().doOnCancel(cancels::incrementAndGet))
+                .subscribe();
+        calls.execute(key, "s2", () -> Mono.error(new AssertionError("must join the in-flight call")))
+                .subscribe(survivor::set);
+
+        quitter.dispose();
+        assertThat(cancels).hasValue(0);
+
+        upstream.tryEmitValue(new PoseSugResponse("upstream", "u", "g", "v", List.of()));
+        assertThat(survivor.get().getSessionId()).isEqualTo("s2");
+    }
+
+    @Test
+    void lastWaiterCancellingCancelsTheUpstreamCall() {
+        InFlightPoseCalls calls = new InFlightPoseCalls(new SimpleMeterRegistry());
+        Sinks.One<PoseSugResponse> upstream = Sinks.one();
+        AtomicInteger cancels = new AtomicInteger();
+
+        Disposable waiter = calls.execute(key, "s1", () -> upstream.asMono().doOnCancel(cancels::incrementAndGet))
+                .subscribe();
+        waiter.dispose();
+
+        assertThat(cancels).hasValue(1);
+        assertThat(calls.size()).isZero();
+    }
+}
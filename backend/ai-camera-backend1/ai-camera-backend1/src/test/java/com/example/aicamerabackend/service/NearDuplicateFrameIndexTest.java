@@ -0,0 +1,97 @@
+package com.example.aicamerabackend.service;
+
+import com.example.aicamerabackend.dto.PoseSugResponse;
+import com.example.aicamerabackend.image.FrameImage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.buffer.UnpooledDirectByteBuf;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.util.unit.DataSize;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import tools.jackson.dataformat.cbor.CBORMapper;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NearDuplicateFrameIndexTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SessionStore store = new SessionStore(meterRegistry, CBORMapper.builder().build(),
+            DataSize.ofMegabytes(1), 3, Duration.ofMinutes(2), System::nanoTime, Runnable::run);
+    private final NearDuplicateFrameIndex index = new NearDuplicateFrameIndex(meterRegistry, store, true, 6);
+
+    private static FrameAnalysisCache.FrameKey key(String intent, String meta) {
+        return new FrameAnalysisCache.FrameKey("sha", intent, meta);
+    }
+
+    @Test
+    void reusesOnlyWhenIntentAndMetaMatch() {
+        PoseSugResponse response = new PoseSugResponse("s1", "u", "g", "v", List.of());
+        store.recordAnalysis("s1", 0b1010L, "显腿长", "{\"lens\":\"back\"}", response, 0);
+
+        // 一位之差的指纹算近重复
+        assertThat(index.findNearDuplicate("s1", 0b1011L, key("显腿长", "{\"lens\":\"back\"}")))
+                .extracting(PoseSugResponse::getGuideText).isEqualTo("g");
+        assertThat(index.findNearDuplicate("s1", 0b1011L, key("显腿长", "{\"lens\":\"front\"}"))).isNull();
+        assertThat(index.findNearDuplicate("s1", 0b1011L, key("侧脸", "{\"lens\":\"back\"}"))).isNull();
+    }
+
+    // 解码途中被取消（如同会话来了新帧）：调用方马上释放 frame，分块也要等解码结束才归还
+    @Test
+    void cancelWhileFingerprintingKeepsChunksUntilDecodeEnds() throws Exception {
+        Thread caller = Thread.currentThread();
+        AtomicBoolean freedByCaller = new AtomicBoolean();
+        CountDownLatch started = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Scheduler decoder = Schedulers.fromExecutor(task -> executor.execute(() -> {
+            started.countDown();
+            task.run();
+        }));
+        ByteBuf chunk = new UnpooledDirectByteBuf(UnpooledByteBufAllocator.DEFAULT, 0, Integer.MAX_VALUE) {
+            @Override
+            protected void deallocate() {
+                freedByCaller.set(Thread.currentThread() == caller);
+                super.deallocate();
+            }
+        };
+        chunk.writeBytes(jpeg(4000, 3000));
+        FrameImage frame = FrameImage.receive(Flux.just(new NettyDataBufferFactory(chunk.alloc()).wrap(chunk)), "f.jpg").block();
+        NearDuplicateFrameIndex decodingIndex = new NearDuplicateFrameIndex(meterRegistry, store, true, 6, decoder);
+
+        Disposable subscription = decodingIndex.fingerprint(frame).subscribe();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(20);
+        subscription.dispose();
+        frame.release();
+        assertThat(chunk.refCnt()).isEqualTo(1);
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(chunk.refCnt()).isZero();
+        // 解码还在进行，调用方的 release 不能把分块归还；最后一次 release 必须发生在解码线程读完之后
+        assertThat(freedByCaller).isFalse();
+    }
+
+    private static byte[] jpeg(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+}
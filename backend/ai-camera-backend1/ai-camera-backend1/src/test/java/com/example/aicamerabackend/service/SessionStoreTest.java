@@ -0,0 +1,82 @@
+package com.example.aicamerabackend.service;
+
+import com.example.aicamerabackend.dto.PoseSugResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import tools.jackson.dataformat.cbor.CBORMapper;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionStoreTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong nanos = new AtomicLong();
+
+    private SessionStore store(DataSize budget) {
+        return new SessionStore(meterRegistry, CBORMapper.builder().build(), budget, 3, Duration.ofMinutes(2),
+                nanos::get, Runnable::run);
+    }
+
+    private static PoseSugResponse response(String guideText) {
+        return new PoseSugResponse("upstream", "u", guideText, "v", List.of());
+    }
+
+    @Test
+    void keepsLastNResponsesNewestFirst() {
+        SessionStore store = store(DataSize.ofMegabytes(1));
+        for (int i = 1; i <= 5; i++) {
+            nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+            store.recordAnalysis("s1", (long) i, "显腿长", null, response("g" + i), TimeUnit.MILLISECONDS.toNanos(40));
+        }
+
+        assertThat(store.recentResponses("s1"))
+                .extracting(PoseSugResponse::getGuideText)
+                .containsExactly("g5", "g4", "g3");
+        assertThat(store.lastResponse("s1").getSessionId()).isEqualTo("s1");
+        assertThat(store.get("s1").fingerprint()).isEqualTo(5L);
+        assertThat(store.get("s1").lastIntent()).isEqualTo("显腿长");
+        assertThat(store.timings("s1").requests()).isEqualTo(5);
+        assertThat(store.timings("s1").lastLatencyMillis()).isEqualTo(40);
+    }
+
+    @Test
+    void responseWithoutFingerprintClearsThePreviousOne() {
+        SessionStore store = store(DataSize.ofMegabytes(1));
+        store.recordAnalysis("s1", 7L, null, null, response("g1"), 0);
+        store.recordAnalysis("s1", null, null, null, response("g2"), 0);
+
+        assertThat(store.get("s1").fingerprint()).isNull();
+        assertThat(store.lastResponse("s1").getGuideText()).isEqualTo("g2");
+    }
+
+    @Test
+    void staysWithinMemoryBudget() {
+        SessionStore store = store(DataSize.ofKilobytes(16));
+        for (int i = 0; i < 1_000; i++) {
+            store.recordAnalysis("session-" + i, (long) i, null, null, response("g"), 0);
+        }
+
+        assertThat(store.size()).isLessThan(1_000);
+        assertThat(store.weightedSize()).isLessThanOrEqualTo(DataSize.ofKilobytes(16).toBytes());
+        assertThat(meterRegistry.get("pose.session.evictions").tag("cause", "size").counter().count())
+                .isPositive();
+    }
+
+    @Test
+    void expiresIdleSessions() {
+        SessionStore store = store(DataSize.ofMegabytes(1));
+        store.recordAnalysis("s1", 1L, null, null, response("g"), 0);
+        nanos.addAndGet(Duration.ofMinutes(3).toNanos());
+
+        assertThat(store.size()).isZero();
+        assertThat(store.lastResponse("s1")).isNull();
+        assertThat(meterRegistry.get("pose.session.evictions").tag("cause", "expired").counter().count())
+                .isEqualTo(1);
+    }
+}
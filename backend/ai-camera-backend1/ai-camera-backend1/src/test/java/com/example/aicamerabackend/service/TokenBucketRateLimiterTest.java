@@ -0,0 +1,47 @@
+package com.example.aicamerabackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketRateLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+    @Test
+    void allowsBurstThenRefillsAtRate() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 5, 100, nanos::get);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("s1")).isZero();
+        }
+        long wait = limiter.tryAcquire("s1");
+        assertThat(wait).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+
+        nanos.addAndGet(wait);
+        assertThat(limiter.tryAcquire("s1")).isZero();
+        assertThat(limiter.tryAcquire("s1")).isPositive();
+    }
+
+    @Test
+    void keysAreIndependent() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, 100, nanos::get);
+
+        assertThat(limiter.tryAcquire("s1")).isZero();
+        assertThat(limiter.tryAcquire("s1")).isPositive();
+        assertThat(limiter.tryAcquire("s2")).isZero();
+    }
+
+    @Test
+    void idleBucketsExpire() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 5, 100, nanos::get);
+        limiter.tryAcquire("s1");
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        assertThat(limiter.size()).isZero();
+    }
+}
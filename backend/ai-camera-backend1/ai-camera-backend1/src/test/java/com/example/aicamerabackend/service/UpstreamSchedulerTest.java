@@ -0,0 +1,174 @@
+package com.example.aicamerabackend.service;
+
+import com.example.aicamerabackend.client.PoseUpstreamRejectedException;
+import com.example.aicamerabackend.service.UpstreamScheduler.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpstreamSchedulerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> started = new ArrayList<>();
+    private final Sinks.One<String> busy = Sinks.one();
+    private final AtomicLong nanos = new AtomicLong();
+
+    // 在途上限 1：先用一个挂起的调用占住，后面的都排队
+    private UpstreamScheduler scheduler(int maxQueuedPerSession) {
+        return scheduler(maxQueuedPerSession, false);
+    }
+
+    private UpstreamScheduler scheduler(int maxQueuedPerSession, boolean shedAsUnavailable) {
+        UpstreamScheduler scheduler = new UpstreamScheduler(meterRegistry, () -> 1, 4, 16, 1, 16, maxQueuedPerSession,
+                Duration.ofMillis(100), Duration.ofMillis(500), shedAsUnavailable, nanos::get);
+        scheduler.schedule("busy", Priority.INTERACTIVE, busy::asMono).subscribe();
+        return scheduler;
+    }
+
+    // 调用一直挂起，直到测试手动完成返回的 sink
+    private Sinks.One<String> pendingCall(UpstreamScheduler scheduler, String sessionId, List<Throwable> errors) {
+        Sinks.One<String> call = Sinks.one();
+        scheduler.schedule(sessionId, Priority.BACKGROUND, () -> {
+            started.add(sessionId);
+            return call.asMono();
+        }).subscribe(v -> { }, errors::add);
+        return call;
+    }
+
+    private Disposable submit(UpstreamScheduler scheduler, String sessionId, Priority priority, String name) {
+        return scheduler.schedule(sessionId, priority, () -> {
+            started.add(name);
+            return Mono.just(name);
+        }).subscribe();
+    }
+
+    @Test
+    void interactiveRequestsGoFirst() {
+        UpstreamScheduler scheduler = scheduler(4);
+        submit(scheduler, "a", Priority.BACKGROUND, "b1");
+        submit(scheduler, "b", Priority.BACKGROUND, "b2");
+        submit(scheduler, "c", Priority.INTERACTIVE, "i1");
+        submit(scheduler, "d", Priority.INTERACTIVE, "i2");
+
+        busy.tryEmitValue("done");
+
+        assertThat(started).containsExactly("i1", "i2", "b1", "b2");
+        assertThat(scheduler.running()).isZero();
+    }
+
+    @Test
+    void sessionsTakeTurns() {
+        UpstreamScheduler scheduler = scheduler(4);
+        submit(scheduler, "chatty", Priority.BACKGROUND, "a1");
+        submit(scheduler, "chatty", Priority.BACKGROUND, "a2");
+        submit(scheduler, "chatty", Priority.BACKGROUND, "a3");
+        submit(scheduler, "quiet", Priority.BACKGROUND, "q1");
+
+        busy.tryEmitValue("done");
+
+        assertThat(started).containsExactly("a1", "q1", "a2", "a3");
+    }
+
+    @Test
+    void rejectsWhenSessionQueueIsFull() {
+        UpstreamScheduler scheduler = scheduler(1);
+        submit(scheduler, "s1", Priority.BACKGROUND, "first");
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        scheduler.schedule("s1", Priority.BACKGROUND, () -> Mono.just("second")).subscribe(v -> { }, error::set);
+
+        assertThat(error.get()).isInstanceOf(PoseUpstreamRejectedException.class);
+        assertThat(scheduler.queued(Priority.BACKGROUND)).isEqualTo(1);
+    }
+
+    @Test
+    void cancelledRequestsLeaveTheQueue() {
+        UpstreamScheduler scheduler = scheduler(4);
+        Disposable queued = submit(scheduler, "s1", Priority.BACKGROUND, "cancelled");
+
+        queued.dispose();
+        busy.tryEmitValue("done");
+
+        assertThat(scheduler.queued(Priority.BACKGROUND)).isZero();
+        assertThat(started).isEmpty();
+        assertThat(meterRegistry.get("pose.scheduler.queue.time").tag("class", "interactive").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void synchronousFailuresDoNotGrowTheStack() {
+        UpstreamScheduler scheduler = new UpstreamScheduler(meterRegistry, () -> 1, 4, 16, 1, 2048, 4,
+                Duration.ofHours(1), Duration.ofHours(1), false, nanos::get);
+        scheduler.schedule("busy", Priority.INTERACTIVE, busy::asMono).subscribe();
+        List<Integer> depths = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            scheduler.schedule("s" + i, Priority.BACKGROUND, () -> {
+                depths.add(Thread.currentThread().getStackTrace().length);
+                return Mono.<String>error(new IllegalStateException("breaker open"));
+            }).subscribe(v -> { }, errors::add);
+        }
+
+        busy.tryEmitValue("done");
+
+        // 每个失败的调用都在同一层栈上启动，而不是在上一个的 onFinished 里递归
+        assertThat(errors).hasSize(1000);
+        assertThat(depths).hasSize(1000).containsOnly(depths.get(0));
+        assertThat(scheduler.running()).isZero();
+    }
+
+    // 四个请求同时排队，t=300ms 时第一个出队，t=900ms 时排队时长已持续超过 target 一个 interval
+    private List<Sinks.One<String>> overload(UpstreamScheduler scheduler, List<Throwable> errors) {
+        List<Sinks.One<String>> calls = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            calls.add(pendingCall(scheduler, "s" + i, errors));
+        }
+        nanos.set(Duration.ofMillis(300).toNanos());
+        busy.tryEmitValue("done");
+        nanos.set(Duration.ofMillis(900).toNanos());
+        calls.get(0).tryEmitValue("s0");
+        return calls;
+    }
+
+    @Test
+    void shedsOnceQueueDelayStaysAboveTarget() {
+        UpstreamScheduler scheduler = scheduler(4);
+        List<Throwable> errors = new ArrayList<>();
+        List<Sinks.One<String>> calls = overload(scheduler, errors);
+
+        // s1 被丢弃；下一次丢弃要等 interval 之后，所以 s2 照常执行；新来的请求直接拒绝
+        pendingCall(scheduler, "late", errors);
+        assertThat(started).containsExactly("s0", "s2");
+        assertThat(errors).hasSize(2).allSatisfy(e -> assertThat(e)
+                .isInstanceOf(PoseUpstreamRejectedException.class)
+                .hasMessageContaining(UpstreamScheduler.OVERLOAD));
+        assertThat(scheduler.shedding(Priority.BACKGROUND)).isTrue();
+
+        // 队列排空后恢复接收
+        nanos.set(Duration.ofMillis(950).toNanos());
+        calls.get(2).tryEmitValue("s2");
+        pendingCall(scheduler, "fresh", errors);
+        assertThat(scheduler.shedding(Priority.BACKGROUND)).isFalse();
+        assertThat(scheduler.queued(Priority.BACKGROUND)).isEqualTo(1);
+        assertThat(errors).hasSize(2);
+    }
+
+    @Test
+    void shedsAsUnavailableWhenConfigured() {
+        UpstreamScheduler scheduler = scheduler(4, true);
+        List<Throwable> errors = new ArrayList<>();
+        overload(scheduler, errors);
+
+        assertThat(errors).singleElement().isInstanceOf(FrameShedException.class);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.aicamerabackend.service;
+
+import com.example.aicamerabackend.client.WriteAiClient;
+import com.example.aicamerabackend.image.FrameBufferPool;
+import com.example.aicamerabackend.image.ImageNormalizer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.codec.multipart.FilePart;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WriteServiceTest {
+
+    private static final byte[] PHOTO = jpeg(4000, 3000);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FrameBufferPool pool = new FrameBufferPool(meterRegistry, 1, false);
+    private final ImageNormalizer normalizer = new ImageNormalizer(meterRegistry, pool, true, 640, 0.85f, 1, 16);
+    private final WriteAiClient client = mock(WriteAiClient.class);
+
+    private WriteService service(int maxImages, Duration deadline) {
+        when(client.write(any(), any(), any())).thenReturn(Mono.never());
+        return new WriteService(client, normalizer, JsonMapper.builder().build(), meterRegistry,
+                1280, maxImages, 3, false, deadline);
+    }
+
+    // 截止时间落在照片还在规范化的时候：入站分块和已经编码出的图片都要在工作线程读完之后归还
+    @Test
+    void deadlineDuringPreprocessReleasesEverything() throws Exception {
+        List<ByteBuf> chunks = List.of(Unpooled.directBuffer(), Unpooled.directBuffer(), Unpooled.directBuffer());
+        List<FilePart> parts = chunks.stream().map(WriteServiceTest::part).toList();
+
+        List<WriteService.Candidate> result = service(9, Duration.ofMillis(100))
+                .write(Flux.fromIterable(parts), "s1", null)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(result).isEmpty();
+        await(() -> chunks.stream().allMatch(chunk -> chunk.refCnt() == 0));
+        await(() -> pool.activeAllocations() == 0);
+    }
+
+    @Test
+    void tooManyImagesReleasesTheOnesAlreadyReceived() throws Exception {
+        List<ByteBuf> chunks = List.of(Unpooled.directBuffer(), Unpooled.directBuffer());
+        List<FilePart> parts = chunks.stream().map(WriteServiceTest::part).toList();
+
+        assertThatThrownBy(() -> service(1, Duration.ofSeconds(5))
+                .write(Flux.fromIterable(parts), "s1", null)
+                .blockLast(Duration.ofSeconds(5)))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        // 第二张没有被读取，未消费的分块由框架清理
+        await(() -> chunks.get(0).refCnt() == 0);
+        await(() -> pool.activeAllocations() == 0);
+    }
+
+    private static FilePart part(ByteBuf chunk) {
+        chunk.writeBytes(PHOTO);
+        FilePart part = mock(FilePart.class);
+        when(part.filename()).thenReturn("photo.jpg");
+        when(part.content()).thenReturn(Flux.<DataBuffer>just(new NettyDataBufferFactory(chunk.alloc()).wrap(chunk)));
+        return part;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private static byte[] jpeg(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "jpg", out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+}